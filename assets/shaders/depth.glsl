@@ -1,8 +1,8 @@
 /// Vertex
 #version 330
 layout (location = 0) in vec3 position;
+layout (location = 3) in mat4 worldMatrix;
 uniform mat4 lightSpaceMatrix;
-uniform mat4 worldMatrix;
 
 void main() {
     gl_Position = lightSpaceMatrix * worldMatrix * vec4(position, 1.0);
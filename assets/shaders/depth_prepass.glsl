@@ -0,0 +1,21 @@
+/// Vertex
+#version 330
+
+layout (location=0) in vec3 position;
+layout (location=3) in mat4 worldMatrix;
+
+uniform mat4 viewMatrix;
+uniform mat4 projectionMatrix;
+
+// Must match the position computed by sobel_filter_and_shadows exactly, since it is drawn with GL_EQUAL depth testing
+invariant gl_Position;
+
+void main() {
+    gl_Position = projectionMatrix * viewMatrix * worldMatrix * vec4(position, 1.0);
+}
+
+/// Fragment
+#version 330
+
+void main() {
+}
@@ -0,0 +1,37 @@
+/// Vertex
+#version 330
+
+layout (location=0) in vec3 position;
+layout (location=1) in vec3 normal;
+layout (location=2) in vec3 inColor;
+layout (location=3) in mat4 worldMatrix;
+layout (location=7) in vec4 color0;
+layout (location=8) in vec4 color1;
+
+uniform mat4 viewMatrix;
+uniform mat4 projectionMatrix;
+
+out vec4 normalColor;
+out vec4 color;
+
+void main() {
+    gl_Position = projectionMatrix * viewMatrix * worldMatrix * vec4(position, 1.0);
+
+    normalColor = vec4(normal, color0.a);
+    color = vec4(mix(color0, color1, inColor.r));
+}
+
+/// Fragment
+#version 330
+
+in vec4 normalColor;
+in vec4 color;
+
+// Normals (used to draw edges with a sobel filter) go to the first color attachment, colors to the second
+layout (location=0) out vec4 fragNormal;
+layout (location=1) out vec4 fragColor;
+
+void main() {
+    fragNormal = vec4((normalColor.rgb + vec3(1.0, 1.0, 1.0))/2, normalColor.a);
+    fragColor = color;
+}
@@ -4,15 +4,15 @@
 layout (location=0) in vec3 position;
 layout (location=1) in vec3 inNormal;
 layout (location=2) in vec3 inColor;
+layout (location=3) in mat4 worldMatrix;
+layout (location=7) in vec4 color0;
+layout (location=8) in vec4 color1;
 
 uniform mat4 viewMatrix;
 uniform mat4 projectionMatrix;
-uniform vec4 color0;
-uniform vec4 color1;
 uniform vec4 inShadowColor;
 
 uniform mat4 lightSpaceMatrix;
-uniform mat4 worldMatrix;
 
 out vec4 color;
 out float glow;
@@ -22,8 +22,11 @@ out vec3 orthoPos;
 
 out vec4 fragPosLightSpace;
 
+// Must match the position computed by depth_prepass exactly, since this is drawn with GL_EQUAL depth testing
+invariant gl_Position;
+
 void main() {
-    gl_Position = projectionMatrix * viewMatrix * vec4(position, 1.0);
+    gl_Position = projectionMatrix * viewMatrix * worldMatrix * vec4(position, 1.0);
     color = vec4(mix(color0, color1, inColor.r));
     glow = 1 - inColor.g;
 
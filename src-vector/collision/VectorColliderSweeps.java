@@ -0,0 +1,118 @@
+package collision;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import shape.Line3d;
+
+import static math.MathUtil.EPSILON;
+
+/**
+ * Plane and sphere sweeps that test several colliders at once using the (incubating) Vector API.
+ * Requires the JVM to be started with --add-modules jdk.incubator.vector; ColliderStore falls back to its scalar sweeps otherwise.
+ *
+ * Every lane does the same operations in the same order as ColliderStore's scalar sweeps, so the results are identical.
+ * Lanes that could contain an intersection are handed to ColliderStore.offerPlane/offerSphere, which do the exact checks
+ */
+final class VectorColliderSweeps implements ColliderSweeps {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    // Values further than this outside of [0, 1] can't be clipped back into [0, 1] by clipWithinEpsilon
+    private static final double MARGIN = 2*EPSILON;
+
+    @Override
+    public void sweepPlanes(ColliderStore store, Line3d line) {
+        double px = line.position.x, py = line.position.y, pz = line.position.z;
+        double dx = line.displacement.x, dy = line.displacement.y, dz = line.displacement.z;
+        double nx = -dx, ny = -dy, nz = -dz;
+
+        int bound = SPECIES.loopBound(store.planes);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector normalX = DoubleVector.fromArray(SPECIES, store.planeNormalX, i);
+            DoubleVector normalY = DoubleVector.fromArray(SPECIES, store.planeNormalY, i);
+            DoubleVector normalZ = DoubleVector.fromArray(SPECIES, store.planeNormalZ, i);
+
+            // Skip planes that the line is moving away from
+            VectorMask<Double> mask = dot(normalX, normalY, normalZ, dx, dy, dz).compare(VectorOperators.GT, 0).not();
+            if (!mask.anyTrue()) continue;
+
+            DoubleVector wx = DoubleVector.broadcast(SPECIES, px).sub(DoubleVector.fromArray(SPECIES, store.planeX, i));
+            DoubleVector wy = DoubleVector.broadcast(SPECIES, py).sub(DoubleVector.fromArray(SPECIES, store.planeY, i));
+            DoubleVector wz = DoubleVector.broadcast(SPECIES, pz).sub(DoubleVector.fromArray(SPECIES, store.planeZ, i));
+
+            DoubleVector denom = dot(normalX, normalY, normalZ, nx, ny, nz);
+            DoubleVector t = dot(normalX, normalY, normalZ, wx, wy, wz).div(denom);
+            mask = mask.and(withinUnitInterval(t));
+            if (!mask.anyTrue()) continue;
+
+            DoubleVector d2x = DoubleVector.fromArray(SPECIES, store.planeD2X, i);
+            DoubleVector d2y = DoubleVector.fromArray(SPECIES, store.planeD2Y, i);
+            DoubleVector d2z = DoubleVector.fromArray(SPECIES, store.planeD2Z, i);
+            DoubleVector u = dot(
+                    d2y.mul(nz).sub(d2z.mul(ny)),
+                    d2z.mul(nx).sub(d2x.mul(nz)),
+                    d2x.mul(ny).sub(d2y.mul(nx)),
+                    wx, wy, wz
+            ).div(denom);
+
+            DoubleVector d1x = DoubleVector.fromArray(SPECIES, store.planeD1X, i);
+            DoubleVector d1y = DoubleVector.fromArray(SPECIES, store.planeD1Y, i);
+            DoubleVector d1z = DoubleVector.fromArray(SPECIES, store.planeD1Z, i);
+            DoubleVector v = dot(
+                    DoubleVector.broadcast(SPECIES, ny).mul(d1z).sub(DoubleVector.broadcast(SPECIES, nz).mul(d1y)),
+                    DoubleVector.broadcast(SPECIES, nz).mul(d1x).sub(DoubleVector.broadcast(SPECIES, nx).mul(d1z)),
+                    DoubleVector.broadcast(SPECIES, nx).mul(d1y).sub(DoubleVector.broadcast(SPECIES, ny).mul(d1x)),
+                    wx, wy, wz
+            ).div(denom);
+
+            mask = mask.and(withinUnitInterval(u)).and(withinUnitInterval(v));
+            for (int lane = mask.firstTrue(); lane < SPECIES.length(); lane++) {
+                if (mask.laneIsSet(lane)) {
+                    store.offerPlane(line, i + lane, t.lane(lane), u.lane(lane), v.lane(lane));
+                }
+            }
+        }
+        store.sweepPlanes(line, bound, store.planes);
+    }
+
+    @Override
+    public void sweepSpheres(ColliderStore store, Line3d line) {
+        double px = line.position.x, py = line.position.y, pz = line.position.z;
+        double dx = line.displacement.x, dy = line.displacement.y, dz = line.displacement.z;
+        double a = line.displacement.lengthSquared();
+
+        int bound = SPECIES.loopBound(store.spheres);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector wx = DoubleVector.broadcast(SPECIES, px).sub(DoubleVector.fromArray(SPECIES, store.sphereX, i));
+            DoubleVector wy = DoubleVector.broadcast(SPECIES, py).sub(DoubleVector.fromArray(SPECIES, store.sphereY, i));
+            DoubleVector wz = DoubleVector.broadcast(SPECIES, pz).sub(DoubleVector.fromArray(SPECIES, store.sphereZ, i));
+            DoubleVector radius = DoubleVector.fromArray(SPECIES, store.sphereRadius, i);
+
+            DoubleVector b = dot(wx, wy, wz, dx, dy, dz).mul(2);
+            DoubleVector c = dot(wx, wy, wz, wx, wy, wz).sub(radius.mul(radius));
+            DoubleVector discriminant = b.mul(b).sub(c.mul(4*a));
+
+            VectorMask<Double> mask = discriminant.compare(VectorOperators.GE, 0);
+            if (!mask.anyTrue()) continue;
+            for (int lane = mask.firstTrue(); lane < SPECIES.length(); lane++) {
+                if (mask.laneIsSet(lane)) {
+                    store.offerSphere(line, i + lane, a, b.lane(lane), discriminant.lane(lane));
+                }
+            }
+        }
+        store.sweepSpheres(line, bound, store.spheres);
+    }
+
+    // Dot products, with the same order of operations as Vector3d.dot()
+    private static DoubleVector dot(DoubleVector ax, DoubleVector ay, DoubleVector az, double bx, double by, double bz) {
+        return ax.mul(bx).add(ay.mul(by).add(az.mul(bz)));
+    }
+    private static DoubleVector dot(DoubleVector ax, DoubleVector ay, DoubleVector az, DoubleVector bx, DoubleVector by, DoubleVector bz) {
+        return ax.mul(bx).add(ay.mul(by).add(az.mul(bz)));
+    }
+
+    private static VectorMask<Double> withinUnitInterval(DoubleVector x) {
+        return x.compare(VectorOperators.GE, -MARGIN).and(x.compare(VectorOperators.LE, 1 + MARGIN));
+    }
+}
@@ -1,8 +1,11 @@
 import game.Game;
 
+import java.util.Arrays;
+
 public class Main {
     public static void main(String[] args) throws InterruptedException {
         Game game = new Game();
+        game.setVsync(!Arrays.asList(args).contains("--no-vsync"));
         game.run();
         game.close();
     }
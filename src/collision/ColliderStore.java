@@ -0,0 +1,388 @@
+package collision;
+
+import math.GeometryScratch;
+import org.joml.Vector3d;
+import shape.CylinderFrame;
+import shape.Line3d;
+import shape.Plane;
+import shape.Sphere;
+
+import java.util.Arrays;
+
+import static math.Geometry.distance;
+import static math.MathUtil.clipWithinEpsilon;
+import static math.MathUtil.minNonNegativeClipped;
+
+/**
+ * Stores the shapes of collision objects in primitive arrays, grouped by type (structure of arrays).
+ * Finding the closest intersection with a line is done one type at a time, in tight loops
+ * without virtual calls or pointer chasing.
+ * Objects that are not planes, cylinders, or spheres are stored as-is and intersected through CollisionObject.intersect
+ */
+public class ColliderStore {
+    // Plane and sphere sweeps that use the Vector API; null if the jdk.incubator.vector module isn't available
+    private static final ColliderSweeps VECTOR_SWEEPS = loadVectorSweeps();
+    private static volatile boolean isVectorized = VECTOR_SWEEPS != null
+            && !"false".equals(System.getProperty("collision.vector"));
+
+    // Planes: position, the two direction vectors, and the normal (displacement1 × displacement2)
+    int planes;
+    double[] planeX, planeY, planeZ;
+    double[] planeD1X, planeD1Y, planeD1Z;
+    double[] planeD2X, planeD2Y, planeD2Z;
+    double[] planeNormalX, planeNormalY, planeNormalZ;
+    boolean[] planeIsTriangle;
+    private CollisionObject[] planeObjects;
+    private int[] planeOrders;
+
+    // Cylinders: position, frame (unit axis and the two unit vectors perpendicular to it), length, and radius
+    int cylinders;
+    double[] cylinderX, cylinderY, cylinderZ;
+    double[] cylinderAxisX, cylinderAxisY, cylinderAxisZ;
+    double[] cylinderUX, cylinderUY, cylinderUZ;
+    double[] cylinderVX, cylinderVY, cylinderVZ;
+    double[] cylinderLength;
+    double[] cylinderRadius;
+    boolean[] cylinderIsInverted;
+    private CollisionObject[] cylinderObjects;
+    private int[] cylinderOrders;
+
+    // Spheres: position and radius
+    int spheres;
+    double[] sphereX, sphereY, sphereZ;
+    double[] sphereRadius;
+    private CollisionObject[] sphereObjects;
+    private int[] sphereOrders;
+
+    // Everything else
+    private int others;
+    private CollisionObject[] otherObjects;
+    private int[] otherOrders;
+
+    // The closest intersection found by the current sweep
+    private double minDistance;
+    private int minOrder;
+    private CollisionObject minObject;
+    private final Vector3d minIntersection;
+    private final Vector3d intersection;
+
+    private int size;
+
+    public ColliderStore() {
+        minIntersection = new Vector3d();
+        intersection = new Vector3d();
+        allocatePlanes(16);
+        allocateCylinders(16);
+        allocateSpheres(16);
+        otherObjects = new CollisionObject[16];
+        otherOrders = new int[16];
+    }
+
+    private static ColliderSweeps loadVectorSweeps() {
+        try {
+            // Loaded by name so that nothing else depends on jdk.incubator.vector. It is kept in src-vector,
+            // so that src can be compiled without the module (in which case this class is missing)
+            return (ColliderSweeps)Class.forName("collision.VectorColliderSweeps").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the Vector API sweeps can be used (the JVM was started with --add-modules jdk.incubator.vector)
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR_SWEEPS != null;
+    }
+    /**
+     * @return true if planes and spheres are currently swept with the Vector API
+     */
+    public static boolean isVectorized() {
+        return isVectorized;
+    }
+    /**
+     * Switches between the Vector API and scalar sweeps for planes and spheres (for comparing the two).
+     * The Vector API sweeps are used by default when they are available, unless -Dcollision.vector=false is set
+     * @param isVectorized whether to use the Vector API sweeps; ignored if they aren't available
+     */
+    public static void setVectorized(boolean isVectorized) {
+        ColliderStore.isVectorized = isVectorized && VECTOR_SWEEPS != null;
+    }
+
+    private void allocatePlanes(int capacity) {
+        planeX = grow(planeX, capacity); planeY = grow(planeY, capacity); planeZ = grow(planeZ, capacity);
+        planeD1X = grow(planeD1X, capacity); planeD1Y = grow(planeD1Y, capacity); planeD1Z = grow(planeD1Z, capacity);
+        planeD2X = grow(planeD2X, capacity); planeD2Y = grow(planeD2Y, capacity); planeD2Z = grow(planeD2Z, capacity);
+        planeNormalX = grow(planeNormalX, capacity); planeNormalY = grow(planeNormalY, capacity); planeNormalZ = grow(planeNormalZ, capacity);
+        planeIsTriangle = planeIsTriangle == null ? new boolean[capacity] : Arrays.copyOf(planeIsTriangle, capacity);
+        planeObjects = planeObjects == null ? new CollisionObject[capacity] : Arrays.copyOf(planeObjects, capacity);
+        planeOrders = planeOrders == null ? new int[capacity] : Arrays.copyOf(planeOrders, capacity);
+    }
+    private void allocateCylinders(int capacity) {
+        cylinderX = grow(cylinderX, capacity); cylinderY = grow(cylinderY, capacity); cylinderZ = grow(cylinderZ, capacity);
+        cylinderAxisX = grow(cylinderAxisX, capacity); cylinderAxisY = grow(cylinderAxisY, capacity); cylinderAxisZ = grow(cylinderAxisZ, capacity);
+        cylinderUX = grow(cylinderUX, capacity); cylinderUY = grow(cylinderUY, capacity); cylinderUZ = grow(cylinderUZ, capacity);
+        cylinderVX = grow(cylinderVX, capacity); cylinderVY = grow(cylinderVY, capacity); cylinderVZ = grow(cylinderVZ, capacity);
+        cylinderLength = grow(cylinderLength, capacity);
+        cylinderRadius = grow(cylinderRadius, capacity);
+        cylinderIsInverted = cylinderIsInverted == null ? new boolean[capacity] : Arrays.copyOf(cylinderIsInverted, capacity);
+        cylinderObjects = cylinderObjects == null ? new CollisionObject[capacity] : Arrays.copyOf(cylinderObjects, capacity);
+        cylinderOrders = cylinderOrders == null ? new int[capacity] : Arrays.copyOf(cylinderOrders, capacity);
+    }
+    private void allocateSpheres(int capacity) {
+        sphereX = grow(sphereX, capacity); sphereY = grow(sphereY, capacity); sphereZ = grow(sphereZ, capacity);
+        sphereRadius = grow(sphereRadius, capacity);
+        sphereObjects = sphereObjects == null ? new CollisionObject[capacity] : Arrays.copyOf(sphereObjects, capacity);
+        sphereOrders = sphereOrders == null ? new int[capacity] : Arrays.copyOf(sphereOrders, capacity);
+    }
+    private static double[] grow(double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    /**
+     * Removes all objects from the store (does not free any memory)
+     */
+    public void clear() {
+        Arrays.fill(planeObjects, 0, planes, null);
+        Arrays.fill(cylinderObjects, 0, cylinders, null);
+        Arrays.fill(sphereObjects, 0, spheres, null);
+        Arrays.fill(otherObjects, 0, others, null);
+        planes = 0;
+        cylinders = 0;
+        spheres = 0;
+        others = 0;
+        size = 0;
+    }
+
+    /**
+     * Adds a collision object to the store. When two objects intersect a line at the same distance,
+     * the one added last is considered the closest
+     */
+    public void add(CollisionObject object) {
+        object.addToStore(this, size++);
+    }
+
+    void addPlane(CollisionObject object, int order, Plane plane, Vector3d normal, boolean isTriangle) {
+        if (planes == planeX.length) allocatePlanes(2*planes);
+        int i = planes++;
+        planeX[i] = plane.position.x; planeY[i] = plane.position.y; planeZ[i] = plane.position.z;
+        planeD1X[i] = plane.displacement1.x; planeD1Y[i] = plane.displacement1.y; planeD1Z[i] = plane.displacement1.z;
+        planeD2X[i] = plane.displacement2.x; planeD2Y[i] = plane.displacement2.y; planeD2Z[i] = plane.displacement2.z;
+        planeNormalX[i] = normal.x; planeNormalY[i] = normal.y; planeNormalZ[i] = normal.z;
+        planeIsTriangle[i] = isTriangle;
+        planeObjects[i] = object;
+        planeOrders[i] = order;
+    }
+    void addCylinder(CollisionObject object, int order, CylinderFrame cylinder, boolean isInverted) {
+        if (cylinders == cylinderX.length) allocateCylinders(2*cylinders);
+        int i = cylinders++;
+        cylinderX[i] = cylinder.position.x; cylinderY[i] = cylinder.position.y; cylinderZ[i] = cylinder.position.z;
+        cylinderAxisX[i] = cylinder.axis.x; cylinderAxisY[i] = cylinder.axis.y; cylinderAxisZ[i] = cylinder.axis.z;
+        cylinderUX[i] = cylinder.u.x; cylinderUY[i] = cylinder.u.y; cylinderUZ[i] = cylinder.u.z;
+        cylinderVX[i] = cylinder.v.x; cylinderVY[i] = cylinder.v.y; cylinderVZ[i] = cylinder.v.z;
+        cylinderLength[i] = cylinder.getLength();
+        cylinderRadius[i] = cylinder.getRadius();
+        cylinderIsInverted[i] = isInverted;
+        cylinderObjects[i] = object;
+        cylinderOrders[i] = order;
+    }
+    void addSphere(CollisionObject object, int order, Sphere sphere) {
+        if (spheres == sphereX.length) allocateSpheres(2*spheres);
+        int i = spheres++;
+        sphereX[i] = sphere.position.x; sphereY[i] = sphere.position.y; sphereZ[i] = sphere.position.z;
+        sphereRadius[i] = sphere.getRadius();
+        sphereObjects[i] = object;
+        sphereOrders[i] = order;
+    }
+    void addOther(CollisionObject object, int order) {
+        if (others == otherObjects.length) {
+            otherObjects = Arrays.copyOf(otherObjects, 2*others);
+            otherOrders = Arrays.copyOf(otherOrders, 2*others);
+        }
+        otherObjects[others] = object;
+        otherOrders[others] = order;
+        others++;
+    }
+
+    /**
+     * Finds the object whose intersection with a line is closest to the line's position
+     * @param line the line
+     * @param result the vector to store the point of intersection in
+     * @param scratch temporary storage used when intersecting objects that have no arrays in the store
+     * @return the object; null if the line does not intersect any objects
+     */
+    public CollisionObject closestIntersection(Line3d line, Vector3d result, GeometryScratch scratch) {
+        minDistance = Double.POSITIVE_INFINITY;
+        minOrder = -1;
+        minObject = null;
+
+        // A line with no length does not intersect anything
+        if (line.displacement.lengthSquared() != 0) {
+            ColliderSweeps sweeps = isVectorized ? VECTOR_SWEEPS : null;
+            if (sweeps != null) {
+                sweeps.sweepPlanes(this, line);
+            } else {
+                sweepPlanes(line, 0, planes);
+            }
+            sweepCylinders(line);
+            if (sweeps != null) {
+                sweeps.sweepSpheres(this, line);
+            } else {
+                sweepSpheres(line, 0, spheres);
+            }
+        }
+        for (int i = 0; i < others; i++) {
+            if (otherObjects[i].intersect(line, intersection, scratch)) {
+                offer(distance(intersection, line.position), otherOrders[i], otherObjects[i], intersection);
+            }
+        }
+
+        if (minObject != null) {
+            result.set(minIntersection);
+        }
+        return minObject;
+    }
+
+    /**
+     * Records an intersection if it is closer than the closest one found so far
+     */
+    private void offer(double distance, int order, CollisionObject object, Vector3d point) {
+        if (distance < minDistance || (distance == minDistance && order > minOrder)) {
+            minDistance = distance;
+            minOrder = order;
+            minObject = object;
+            minIntersection.set(point);
+        }
+    }
+
+    /**
+     * Records an intersection at line.position + t * line.displacement
+     */
+    private void offer(Line3d line, double t, int order, CollisionObject object) {
+        intersection.set(line.displacement).mul(t).add(line.position);
+        offer(distance(intersection, line.position), order, object, intersection);
+    }
+
+    // Dot product, with the same order of operations as Vector3d.dot()
+    private static double dot(double ax, double ay, double az, double bx, double by, double bz) {
+        return ax*bx + (ay*by + az*bz);
+    }
+
+    /**
+     * Same as Geometry.intersectionLinePlane / intersectionLinePlaneTriangle, for planes [from, to)
+     */
+    void sweepPlanes(Line3d line, int from, int to) {
+        double px = line.position.x, py = line.position.y, pz = line.position.z;
+        double dx = line.displacement.x, dy = line.displacement.y, dz = line.displacement.z;
+        double nx = -dx, ny = -dy, nz = -dz;
+        for (int i = from; i < to; i++) {
+            // Skip planes that the line is moving away from
+            if (dot(planeNormalX[i], planeNormalY[i], planeNormalZ[i], dx, dy, dz) > 0) continue;
+
+            double wx = px - planeX[i], wy = py - planeY[i], wz = pz - planeZ[i];
+
+            // t = (d1 × d2) • (line.pos - plane.pos) / -line.d • (d1 × d2)
+            double denom = dot(nx, ny, nz, planeNormalX[i], planeNormalY[i], planeNormalZ[i]);
+            double t = dot(planeNormalX[i], planeNormalY[i], planeNormalZ[i], wx, wy, wz) / denom;
+
+            // u = (d2 × -line.d) • (line.pos - plane.pos) / denom
+            double cx = planeD2Y[i]*nz - planeD2Z[i]*ny;
+            double cy = planeD2Z[i]*nx - planeD2X[i]*nz;
+            double cz = planeD2X[i]*ny - planeD2Y[i]*nx;
+            double u = dot(cx, cy, cz, wx, wy, wz) / denom;
+
+            // v = (-line.d × d1) • (line.pos - plane.pos) / denom
+            cx = ny*planeD1Z[i] - nz*planeD1Y[i];
+            cy = nz*planeD1X[i] - nx*planeD1Z[i];
+            cz = nx*planeD1Y[i] - ny*planeD1X[i];
+            double v = dot(cx, cy, cz, wx, wy, wz) / denom;
+
+            offerPlane(line, i, t, u, v);
+        }
+    }
+
+    /**
+     * Records the intersection with plane i, if t, u, and v are within the plane (or triangle)
+     */
+    void offerPlane(Line3d line, int i, double t, double u, double v) {
+        t = clipWithinEpsilon(t, 0, 1);
+        u = clipWithinEpsilon(u, 0, 1);
+        v = clipWithinEpsilon(v, 0, 1);
+        if (t < 0 || t > 1 || u < 0 || u > 1 || v < 0 || v > 1) return;
+        if (planeIsTriangle[i] && u+v > 1) return;
+
+        offer(line, t, planeOrders[i], planeObjects[i]);
+    }
+
+    /**
+     * Same as Geometry.intersectionLineCylinder(line, CylinderFrame) and the normal check in CollisionCylinder, for every cylinder
+     */
+    private void sweepCylinders(Line3d line) {
+        double px = line.position.x, py = line.position.y, pz = line.position.z;
+        double dx = line.displacement.x, dy = line.displacement.y, dz = line.displacement.z;
+        for (int i = 0; i < cylinders; i++) {
+            double wx = px - cylinderX[i], wy = py - cylinderY[i], wz = pz - cylinderZ[i];
+
+            // Express the line in the cylinder's frame
+            double wu = dot(cylinderUX[i], cylinderUY[i], cylinderUZ[i], wx, wy, wz);
+            double du = dot(cylinderUX[i], cylinderUY[i], cylinderUZ[i], dx, dy, dz);
+            double wv = dot(cylinderVX[i], cylinderVY[i], cylinderVZ[i], wx, wy, wz);
+            double dv = dot(cylinderVX[i], cylinderVY[i], cylinderVZ[i], dx, dy, dz);
+
+            double a = du*du + dv*dv;
+            if (a == 0) continue;
+            double b = 2*(du*wu + dv*wv);
+            double c = wu*wu + wv*wv - cylinderRadius[i]*cylinderRadius[i];
+            double discriminant = b*b - 4*a*c;
+            if (discriminant < 0) continue;
+            double t = minNonNegativeClipped((-b - Math.sqrt(discriminant)) / (2*a), (-b + Math.sqrt(discriminant)) / (2*a));
+            if (t < 0 || t > 1) continue;
+
+            // Check if the intersection is on the cylinder (along the axis)
+            double ax = cylinderAxisX[i], ay = cylinderAxisY[i], az = cylinderAxisZ[i];
+            double s = dot(ax, ay, az, wx, wy, wz) + t*dot(ax, ay, az, dx, dy, dz);
+            if (s < 0 || s > cylinderLength[i]) continue;
+
+            // The normal at the intersection is the component of (intersection - cylinder position) perpendicular to the axis
+            double ix = dx*t + px - cylinderX[i], iy = dy*t + py - cylinderY[i], iz = dz*t + pz - cylinderZ[i];
+            double k = dot(ix, iy, iz, ax, ay, az);
+            double normalDotLine = dot(ix - k*ax, iy - k*ay, iz - k*az, dx, dy, dz);
+            if (cylinderIsInverted[i] ? normalDotLine < 0 : normalDotLine >= 0) continue;
+
+            offer(line, t, cylinderOrders[i], cylinderObjects[i]);
+        }
+    }
+
+    /**
+     * Same as Geometry.intersectionLineSphere, for spheres [from, to)
+     */
+    void sweepSpheres(Line3d line, int from, int to) {
+        double px = line.position.x, py = line.position.y, pz = line.position.z;
+        double dx = line.displacement.x, dy = line.displacement.y, dz = line.displacement.z;
+        double a = line.displacement.lengthSquared();
+        for (int i = from; i < to; i++) {
+            double wx = px - sphereX[i], wy = py - sphereY[i], wz = pz - sphereZ[i];
+            double b = 2 * dot(dx, dy, dz, wx, wy, wz);
+            double c = dot(wx, wy, wz, wx, wy, wz) - sphereRadius[i]*sphereRadius[i];
+            double discriminant = b*b - 4*a*c;
+            if (discriminant < 0) continue;
+
+            offerSphere(line, i, a, b, discriminant);
+        }
+    }
+
+    /**
+     * Records the intersection with sphere i, given the coefficients of its (non-negative) discriminant
+     */
+    void offerSphere(Line3d line, int i, double a, double b, double discriminant) {
+        double t = minNonNegativeClipped((-b - Math.sqrt(discriminant)) / (2*a), (-b + Math.sqrt(discriminant)) / (2*a));
+        if (t < 0 || t > 1) return;
+
+        // Only count the intersection if the line is entering the sphere
+        double dx = line.displacement.x, dy = line.displacement.y, dz = line.displacement.z;
+        double ix = dx*t + line.position.x, iy = dy*t + line.position.y, iz = dz*t + line.position.z;
+        if (dot(ix - sphereX[i], iy - sphereY[i], iz - sphereZ[i], dx, dy, dz) >= 0) return;
+
+        offer(line, t, sphereOrders[i], sphereObjects[i]);
+    }
+}
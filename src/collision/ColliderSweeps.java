@@ -0,0 +1,13 @@
+package collision;
+
+import shape.Line3d;
+
+/**
+ * An alternative implementation of ColliderStore's plane and sphere sweeps.
+ * Implementations must find exactly the same intersections as ColliderStore.sweepPlanes and sweepSpheres,
+ * and record them with ColliderStore.offerPlane and offerSphere
+ */
+interface ColliderSweeps {
+    void sweepPlanes(ColliderStore store, Line3d line);
+    void sweepSpheres(ColliderStore store, Line3d line);
+}
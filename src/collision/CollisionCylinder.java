@@ -1,9 +1,10 @@
 package collision;
 
 import game.GameObject;
+import math.GeometryScratch;
 import shape.Cylinder;
+import shape.CylinderFrame;
 import shape.Line3d;
-import shape.Sphere;
 import org.joml.Vector3d;
 
 import static math.Geometry.*;
@@ -12,27 +13,29 @@ import static math.Geometry.*;
  * Defines the collision properties of a cylinder
  */
 public class CollisionCylinder extends CollisionObject {
-    protected final Cylinder cylinder;
-    private final Vector3d midpoint;
+    protected final CylinderFrame cylinder;
     public CollisionCylinder(GameObject parent, Cylinder cylinder) {
         super(parent);
-        this.cylinder = new Cylinder(cylinder);
-        midpoint = new Vector3d(cylinder.axis).mul(0.5).add(cylinder.position);
+        this.cylinder = new CylinderFrame(cylinder);
+        bounds.set(
+                new Vector3d(cylinder.axis).mul(0.5).add(cylinder.position),
+                cylinder.axis.length() + cylinder.getRadius()
+        );
     }
 
     @Override
-    public void reflectLine(Line3d line, Vector3d intersection) {
-        parent.reflectLine(line, intersection, cylinder.normal(intersection));
+    public void reflectLine(Line3d line, Vector3d intersection, GeometryScratch scratch) {
+        parent.reflectLine(line, intersection, cylinder.normal(intersection, scratch.normal));
     }
 
     @Override
-    public boolean isNearby(Sphere ballSphere) {
-        return distance(midpoint, ballSphere.position) <= ballSphere.getRadius() + cylinder.axis.length() + cylinder.getRadius();
+    public boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch) {
+        boolean intersects = intersectionLineCylinder(line, cylinder, result);
+        return intersects && cylinder.normal(result, scratch.normal).dot(line.displacement) < 0;
     }
 
     @Override
-    public boolean intersect(Line3d line, Vector3d result) {
-        boolean intersects = intersectionLineCylinder(line, cylinder, result);
-        return intersects && cylinder.normal(result).dot(line.displacement) < 0;
+    void addToStore(ColliderStore store, int order) {
+        store.addCylinder(this, order, cylinder, false);
     }
 }
@@ -1,6 +1,7 @@
 package collision;
 
 import game.GameObject;
+import math.GeometryScratch;
 import shape.Cylinder;
 import shape.Line3d;
 import org.joml.Vector3d;
@@ -16,8 +17,13 @@ public class CollisionCylinderInverted extends CollisionCylinder {
     }
 
     @Override
-    public boolean intersect(Line3d line, Vector3d result) {
+    public boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch) {
         boolean intersects = intersectionLineCylinder(line, cylinder, result);
-        return intersects && cylinder.normal(result).dot(line.displacement) >= 0;
+        return intersects && cylinder.normal(result, scratch.normal).dot(line.displacement) >= 0;
+    }
+
+    @Override
+    void addToStore(ColliderStore store, int order) {
+        store.addCylinder(this, order, cylinder, true);
     }
 }
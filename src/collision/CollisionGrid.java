@@ -0,0 +1,172 @@
+package collision;
+
+import shape.Sphere;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Buckets collision objects into the 1x1 cells of a level's tile grid,
+ * so that the objects near a ball can be found without checking every object in the level
+ * @param <T> the type of collision object that is stored
+ */
+public class CollisionGrid <T extends HasCollisionObject> {
+    public final ArrayList<T> objects;
+    private double minX;
+    private double minY;
+    private int columns;
+    private int rows;
+
+    // Pairs of (cell, object index) recorded as objects are added
+    private int[] entryCells;
+    private int[] entryObjects;
+    private int entries;
+
+    // The object indices of cell c are cellObjects[cellStarts[c]] to cellObjects[cellStarts[c+1]-1]
+    private int[] cellStarts;
+    private int[] cellObjects;
+    private boolean isBuilt;
+
+    // Used to avoid returning objects that span multiple cells more than once
+    private int[] queryStamps;
+    private int queryStamp;
+    private int[] queryResults;
+
+    public CollisionGrid() {
+        objects = new ArrayList<>();
+        entryCells = new int[64];
+        entryObjects = new int[64];
+        cellStarts = new int[1];
+        cellObjects = new int[0];
+        queryStamps = new int[0];
+        queryResults = new int[64];
+        columns = 1;
+        rows = 1;
+    }
+
+    /**
+     * Removes all objects and sets the dimensions of the grid
+     * @param minX the x-coordinate of the grid's left edge
+     * @param minY the y-coordinate of the grid's bottom edge
+     * @param columns the number of cells in the x-direction
+     * @param rows the number of cells in the y-direction
+     */
+    public void reset(double minX, double minY, int columns, int rows) {
+        objects.clear();
+        this.minX = minX;
+        this.minY = minY;
+        this.columns = Math.max(1, columns);
+        this.rows = Math.max(1, rows);
+        entries = 0;
+        isBuilt = false;
+    }
+
+    /**
+     * Adds an object to every cell that its bounding sphere overlaps
+     */
+    public void add(T object) {
+        int index = objects.size();
+        objects.add(object);
+
+        Sphere bounds = object.getCollisionObject().getBounds();
+        int column1 = column(bounds.position.x - bounds.getRadius());
+        int column2 = column(bounds.position.x + bounds.getRadius());
+        int row1 = row(bounds.position.y - bounds.getRadius());
+        int row2 = row(bounds.position.y + bounds.getRadius());
+        for (int row = row1; row <= row2; row++) {
+            for (int column = column1; column <= column2; column++) {
+                addEntry(row*columns + column, index);
+            }
+        }
+        isBuilt = false;
+    }
+    private void addEntry(int cell, int object) {
+        if (entries == entryCells.length) {
+            entryCells = Arrays.copyOf(entryCells, 2*entries);
+            entryObjects = Arrays.copyOf(entryObjects, 2*entries);
+        }
+        entryCells[entries] = cell;
+        entryObjects[entries] = object;
+        entries++;
+    }
+
+    /**
+     * Sorts the recorded entries by cell (counting sort)
+     */
+    private void build() {
+        int cells = columns*rows;
+        if (cellStarts.length < cells + 1) {
+            cellStarts = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStarts, 0);
+        }
+        for (int i = 0; i < entries; i++) {
+            cellStarts[entryCells[i] + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+        if (cellObjects.length < entries) {
+            cellObjects = new int[entries];
+        }
+        int[] next = Arrays.copyOf(cellStarts, cells);
+        for (int i = 0; i < entries; i++) {
+            cellObjects[next[entryCells[i]]++] = entryObjects[i];
+        }
+        if (queryStamps.length < objects.size()) {
+            queryStamps = new int[objects.size()];
+        }
+        if (queryResults.length < objects.size()) {
+            queryResults = new int[objects.size()];
+        }
+        isBuilt = true;
+    }
+
+    private int column(double x) {
+        return (int)Math.max(0, Math.min(columns - 1, Math.floor(x - minX)));
+    }
+    private int row(double y) {
+        return (int)Math.max(0, Math.min(rows - 1, Math.floor(y - minY)));
+    }
+
+    /**
+     * Adds every object that shares a cell with a sphere to result, in the order they were added to the grid.
+     * This returns a superset of the objects for which isNearby(sphere) is true
+     * @param sphere the sphere (usually the space a ball can move through in one frame)
+     * @param result the list to add the objects to
+     */
+    public void query(Sphere sphere, ArrayList<T> result) {
+        if (!isBuilt) {
+            build();
+        }
+        if (++queryStamp == 0) {
+            Arrays.fill(queryStamps, 0);
+            queryStamp = 1;
+        }
+
+        int column1 = column(sphere.position.x - sphere.getRadius());
+        int column2 = column(sphere.position.x + sphere.getRadius());
+        int row1 = row(sphere.position.y - sphere.getRadius());
+        int row2 = row(sphere.position.y + sphere.getRadius());
+
+        int found = 0;
+        for (int row = row1; row <= row2; row++) {
+            for (int column = column1; column <= column2; column++) {
+                int cell = row*columns + column;
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    int object = cellObjects[i];
+                    if (queryStamps[object] != queryStamp) {
+                        queryStamps[object] = queryStamp;
+                        queryResults[found++] = object;
+                    }
+                }
+            }
+        }
+
+        // Keep the insertion order so that ties between equally-close collisions are resolved the same way every time
+        Arrays.sort(queryResults, 0, found);
+        for (int i = 0; i < found; i++) {
+            result.add(objects.get(queryResults[i]));
+        }
+    }
+}
@@ -1,17 +1,13 @@
 package collision;
 
 import game.Ball;
-import game.Box;
-import game.HoleBox;
-import shape.Cylinder;
+import math.GeometryScratch;
 import shape.Line3d;
-import shape.Plane;
 import shape.Sphere;
 import org.joml.Vector3d;
 
 import java.util.ArrayList;
-
-import static math.Geometry.distance;
+import java.util.HashMap;
 
 /**
  * Handles collisions between balls and boxes/other balls
@@ -29,12 +25,17 @@ import static math.Geometry.distance;
  *      ball.position + t * ball.velocity.
  * off of the spherically-extruded shapes.
  *
+ * The static collision objects (everything except balls) are compiled
+ * ahead of time into a CollisionWorld, so that they do not have to be
+ * regenerated for every ball on every frame.
+ *
  * Then, we can apply the following sequence of steps:
  *
  * For each ball,
  * 1.   Get all collision objects that are near it
  * 2.   Find the intersections between the ball's motion line and
- *      all of the above objects
+ *      all of the above objects (done one shape type at a time by
+ *      ColliderStore)
  * 3.   Reflect the line off of the intersection found above that
  *      is closest to the ball's position
  * 4.   Repeat steps 1-3 until the line no longer intersects any
@@ -43,31 +44,75 @@ import static math.Geometry.distance;
 public class CollisionHandler {
     private Ball ball;
     private final Line3d ballMotion;
-    private final ArrayList<CollisionObject> collisionObjects;
+    private final ColliderStore collisionObjects;
     private final ArrayList<CollisionTrigger> triggers;
     private final Vector3d minIntersection;
     private CollisionObject minCollisionObject;
     private final Sphere ballSphere;
+    private CollisionWorld world;
+    private final ArrayList<CollisionObject> candidateObjects;
+    private final ArrayList<CollisionTrigger> candidateTriggers;
+    private final HashMap<Ball, CollisionSphere> ballColliders;
+    private final Vector3d intersection;
+    private final GeometryScratch scratch;
+    private long iterations;
     public CollisionHandler() {
         ballMotion = new Line3d();
-        collisionObjects = new ArrayList<>();
+        collisionObjects = new ColliderStore();
         triggers = new ArrayList<>();
+        candidateObjects = new ArrayList<>();
+        candidateTriggers = new ArrayList<>();
+        ballColliders = new HashMap<>();
+        intersection = new Vector3d();
+        scratch = new GeometryScratch();
         minIntersection = new Vector3d();
         ballSphere = new Sphere();
     }
+
+    /**
+     * Forgets the colliders of balls from previous levels, and resets the iteration count
+     */
     public void reset() {
-        collisionObjects.clear();
-        triggers.clear();
+        ballColliders.clear();
+        iterations = 0;
     }
 
     /**
-     * Sets the ball to process collisions for
+     * @return the number of times the closest collision object has been searched for since the last reset
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Sets the world containing the static collision objects to collide balls with
+     */
+    public void setWorld(CollisionWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Sets the ball to process collisions for, and gathers the world's collision objects that are near it
      */
     public void setBall(Ball ball) {
         this.ball = ball;
-        ballSphere.set(ball.geometry);
+        // Sweep the ball's sphere along its velocity so that objects it can reach this frame are not missed
+        ballSphere.set(ball.geometry.position, ball.getRadius() + ball.velocity.length());
         ballMotion.position.set(ball.geometry.position);
         ballMotion.displacement.set(ball.velocity);
+
+        collisionObjects.clear();
+        triggers.clear();
+        candidateObjects.clear();
+        candidateTriggers.clear();
+        world.queryCollisionObjects(ballSphere, candidateObjects);
+        world.queryTriggers(ballSphere, candidateTriggers);
+        for (int i = 0; i < candidateObjects.size(); i++) {
+            addCollisionObject(candidateObjects.get(i));
+        }
+        for (int i = 0; i < candidateTriggers.size(); i++) {
+            addTrigger(candidateTriggers.get(i));
+        }
     }
 
     private void addCollisionObject(CollisionObject object) {
@@ -77,48 +122,44 @@ public class CollisionHandler {
     }
     private void addTrigger(CollisionTrigger trigger) {
         if (trigger.collisionObject.isNearby(ballSphere)) {
+            // Triggers are shared between balls and frames, so they are re-armed every time they are gathered
+            trigger.enable();
             triggers.add(trigger);
         }
     }
 
     /**
-     * Handle collisions using the steps outlined in the topmost comment
+     * Handle collisions using the steps outlined in the topmost comment.
+     * Does not allocate any memory
      */
     public void processCollisions() {
         int i = 0;
-        Vector3d intersection = new Vector3d();
 
         boolean collided = false;
 
         // Limit the max. number of iterations to avoid infinite loops
         while (i++ < 11) {
+            iterations++;
+
             // See if the ball collides with any triggers
-            for (CollisionTrigger trigger : triggers) {
-                if (trigger.isActive() && trigger.collisionObject.intersect(ballMotion, intersection)) {
+            for (int j = 0; j < triggers.size(); j++) {
+                CollisionTrigger trigger = triggers.get(j);
+                if (trigger.isActive() && trigger.collisionObject.intersect(ballMotion, intersection, scratch)) {
                     trigger.onCollision(ball);
                     trigger.disable();
                 }
             }
 
             // Get the collision object that collides with the ball at the closest point to the ball
-            double minDistance = Double.POSITIVE_INFINITY;
-            for (CollisionObject object : collisionObjects) {
-                if (object.intersect(ballMotion, intersection)) {
-                    double distance = distance(intersection, ballMotion.position);
-                    if (distance <= minDistance) {
-                        minDistance = distance;
-                        minIntersection.set(intersection);
-                        minCollisionObject = object;
-                    }
-                }
-            }
+            minCollisionObject = collisionObjects.closestIntersection(ballMotion, minIntersection, scratch);
+
             // Break if the ball does not collide with any objects
-            if (minDistance == Double.POSITIVE_INFINITY) {
+            if (minCollisionObject == null) {
                 break;
             }
 
             // Reflect the ball off of the aforementioned closest collision object
-            minCollisionObject.reflectLine(ballMotion, minIntersection);
+            minCollisionObject.reflectLine(ballMotion, minIntersection, scratch);
 //            if (minCollisionObject.parent instanceof Ball) {
 //                ball.queueSnap();
 //            }
@@ -127,356 +168,24 @@ public class CollisionHandler {
         }
 
         if (collided) {
-            Vector3d v = new Vector3d(ballMotion.displacement).sub(ball.velocity);
-            ball.setLastCollisionSpeed(v.length());
+            ball.setLastCollisionSpeed(ballMotion.displacement.distance(ball.velocity));
         }
 
         ball.geometry.position.set(ballMotion.position);
         ball.velocity.set(ballMotion.displacement);
     }
 
-    /**
-     * Add the death trigger that kills balls that fall off the board
-     */
-    public void addFallDeathTrigger() {
-        addTrigger(new DeathTrigger(new CollisionPlane(null, new Plane(
-                new Vector3d(-100, -100, -3),
-                new Vector3d(200, 0, 0),
-                new Vector3d(0, 200, 0)
-        ))));
-    }
-
-    public void addBoxWallColliders(Box box) {
-        ArrayList<CollisionObject> colliders = new ArrayList<>();
-        boxWallColliders(colliders, box);
-        for (CollisionObject object : colliders) {
-            addCollisionObject(object);
-        }
-    }
-
-    /**
-     * the walls of a box
-     */
-    public void boxWallColliders(ArrayList<CollisionObject> list, Box box) {
-        Vector3d up = new Vector3d(0, 0, box.geometry.displacement.z);
-        list.add(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x1(), box.geometry.y1()-ball.getRadius(), box.geometry.z1()),
-                        new Vector3d(box.geometry.displacement.x, 0, 0),
-                        up
-                )
-        ));
-        list.add(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x2()+ball.getRadius(), box.geometry.y1(), box.geometry.z1()),
-                        new Vector3d(0, box.geometry.displacement.y, 0),
-                        up
-                )
-        ));
-        list.add(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x2(), box.geometry.y2()+ball.getRadius(), box.geometry.z1()),
-                        new Vector3d(-box.geometry.displacement.x, 0, 0),
-                        up
-                )
-        ));
-        list.add(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x1()-ball.getRadius(), box.geometry.y2(), box.geometry.z1()),
-                        new Vector3d(0, -box.geometry.displacement.y, 0),
-                        up
-                )
-        ));
-
-        list.add(new CollisionCylinder(box,
-                new Cylinder(
-                         box.geometry.position,
-                        up,
-                        ball.getRadius()
-                )
-        ));
-        list.add(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x2(), box.geometry.y1(), box.geometry.z1()),
-                        up,
-                        ball.getRadius()
-                )
-        ));
-        list.add(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x2(), box.geometry.y2(), box.geometry.z1()),
-                        up,
-                        ball.getRadius()
-                )
-        ));
-        list.add(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x1(), box.geometry.y2(), box.geometry.z1()),
-                        up,
-                        ball.getRadius()
-                )
-        ));
-    }
-
-    public void addBoxFloorSideColliders(Box box) {
-        ArrayList<CollisionObject> colliders = new ArrayList<>();
-        boxFloorSideColliders(colliders, box);
-        for (CollisionObject object : colliders) {
-            addCollisionObject(object);
-        }
-    }
-    /**
-     * the sides of the floor of a box
-     */
-    public void boxFloorSideColliders(ArrayList<CollisionObject> list, Box box) {
-        boxWallColliders(list, box);
-
-        list.add(new CollisionSphere(box,
-                new Sphere(new Vector3d(box.geometry.x1(), box.geometry.y1(), box.geometry.z2()), ball.getRadius())
-        ));
-        list.add(new CollisionSphere(box,
-                new Sphere(new Vector3d(box.geometry.x1(), box.geometry.y2(), box.geometry.z2()), ball.getRadius())
-        ));
-        list.add(new CollisionSphere(box,
-                new Sphere(new Vector3d(box.geometry.x2(), box.geometry.y2(), box.geometry.z2()), ball.getRadius())
-        ));
-        list.add(new CollisionSphere(box,
-                new Sphere(new Vector3d(box.geometry.x2(), box.geometry.y1(), box.geometry.z2()), ball.getRadius())
-        ));
-        list.add(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x1(), box.geometry.y1(), box.geometry.z2()),
-                        new Vector3d(box.geometry.displacement.x, 0, 0),
-                        ball.getRadius()
-                )
-        ));
-        list.add(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x2(), box.geometry.y1(), box.geometry.z2()),
-                        new Vector3d(0, box.geometry.displacement.y, 0),
-                        ball.getRadius()
-                )
-        ));
-        list.add(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x2(), box.geometry.y2(), box.geometry.z2()),
-                        new Vector3d(-box.geometry.displacement.x, 0, 0),
-                        ball.getRadius()
-                )
-        ));
-        list.add(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x1(), box.geometry.y2(), box.geometry.z2()),
-                        new Vector3d(0, -box.geometry.displacement.y, 0),
-                        ball.getRadius()
-                )
-        ));
-    }
-
-    public void addBoxFloorColliders(Box box) {
-        ArrayList<CollisionObject> colliders = new ArrayList<>();
-        boxFloorColliders(colliders, box);
-        for (CollisionObject object : colliders) {
-            addCollisionObject(object);
-        }
-    }
-    /**
-     * Add the collision objects that make up the floor of the box
-     * @param box the box
-     */
-    public void boxFloorColliders(ArrayList<CollisionObject> list, Box box) {
-        boxFloorSideColliders(list, box);
-
-        list.add(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x1(), box.geometry.y1(), box.geometry.z2() + ball.getRadius()),
-                        new Vector3d(box.geometry.displacement.x, 0, 0),
-                        new Vector3d(0, box.geometry.displacement.y, 0)
-                )
-        ));
-    }
-    /**
-     * Add the collision objects that make up hole boxes
-     * @param box the box
-     */
-    public void addHoleBoxColliders(HoleBox box) {
-        addTrigger(new GoalTrigger(new CollisionPlane(box, new Plane(
-                box.geometry.position,
-                new Vector3d(box.geometry.displacement.x, 0, 0),
-                new Vector3d(0, box.geometry.displacement.y, 0)
-        )), box));
-
-        // Act as a regular tile if the correct ball has fallen into the hole
-        if (box.hasReachedGoal()) {
-            addBoxFloorColliders(box);
-            return;
-        }
-
-        // The hole, when spherically extruded, forms a torus
-        // Approximate this torus using 8 cylinders (because i am NOT figuring out how to reflect a line off of a torus)
-
-        // Assumes that the box is 1x1
-        double circleTop = 0.5 - box.getRadius();
-        double top = box.geometry.z2()+ball.getRadius();
-
-        // Planes surrounding the hole (horizontal and vertical)
-        addCollisionObject(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x1(), box.geometry.y1(), top),
-                        new Vector3d(box.geometry.displacement.x, 0, 0),
-                        new Vector3d(0, circleTop, 0)
-                )
-        ));
-        addCollisionObject(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x1(), box.geometry.y1(), top),
-                        new Vector3d(0, box.geometry.displacement.y, 0),
-                        new Vector3d(circleTop, 0, 0)
-                )
-        ));
-        addCollisionObject(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x2(), box.geometry.y2(), top),
-                        new Vector3d(-box.geometry.displacement.x, 0, 0),
-                        new Vector3d(0, -circleTop, 0)
-                )
-        ));
-        addCollisionObject(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x2(), box.geometry.y2(), top),
-                        new Vector3d(0, -box.geometry.displacement.y, 0),
-                        new Vector3d(-circleTop, 0, 0)
-                )
-        ));
-
-        // Cylinders surrounding the hole (horizontal and vertical)
-        double cylinderLength = 2*box.getRadius();
-        addCollisionObject(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x1()+circleTop, box.geometry.y1()+circleTop, box.geometry.z2()),
-                        new Vector3d(cylinderLength, 0, 0),
-                        ball.getRadius()
-                )
-        ));
-        addCollisionObject(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x1()+circleTop, box.geometry.y1()+circleTop, box.geometry.z2()),
-                        new Vector3d(0, cylinderLength, 0),
-                        ball.getRadius()
-                )
-        ));
-        addCollisionObject(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x2()-circleTop, box.geometry.y2()-circleTop, box.geometry.z2()),
-                        new Vector3d(-cylinderLength, 0, 0),
-                        ball.getRadius()
-                )
-        ));
-        addCollisionObject(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x2()-circleTop, box.geometry.y2()-circleTop, box.geometry.z2()),
-                        new Vector3d(0, -cylinderLength, 0),
-                        ball.getRadius()
-                )
-        ));
-
-        // Triangles surrounding the hole (diagonal)
-        double s = box.getRadius()/(Math.sqrt(2)/2 + 1);
-        addCollisionObject(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x1()+circleTop, box.geometry.y1()+circleTop, top),
-                        new Vector3d(s, 0, 0),
-                        new Vector3d(0, s, 0)
-                )
-        ));
-        addCollisionObject(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x2()-circleTop, box.geometry.y1()+circleTop, top),
-                        new Vector3d(-s, 0, 0),
-                        new Vector3d(0, s, 0)
-                )
-        ));
-        addCollisionObject(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x2()-circleTop, box.geometry.y2()-circleTop, top),
-                        new Vector3d(-s, 0, 0),
-                        new Vector3d(0, -s, 0)
-                )
-        ));
-        addCollisionObject(new CollisionPlane(box,
-                new Plane(
-                        new Vector3d(box.geometry.x1()+circleTop, box.geometry.y2()-circleTop, top),
-                        new Vector3d(s, 0, 0),
-                        new Vector3d(0, -s, 0)
-                )
-        ));
-
-        // Cylinders surrounding the hole (diagonal)
-        addCollisionObject(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x1()+circleTop, box.geometry.y1()+circleTop+s, box.geometry.z2()),
-                        new Vector3d(s, -s, 0),
-                        ball.getRadius()
-                )
-        ));
-        addCollisionObject(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x2()-circleTop-s, box.geometry.y1()+circleTop, box.geometry.z2()),
-                        new Vector3d(s, s, 0),
-                        ball.getRadius()
-                )
-        ));
-        addCollisionObject(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x2()-circleTop, box.geometry.y2()-circleTop-s, box.geometry.z2()),
-                        new Vector3d(-s, s, 0),
-                        ball.getRadius()
-                )
-        ));
-        addCollisionObject(new CollisionCylinder(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x1()+circleTop+s, box.geometry.y2()-circleTop, box.geometry.z2()),
-                        new Vector3d(-s, -s, 0),
-                        ball.getRadius()
-                )
-        ));
-
-        // Inverted cylinder through the hole
-        addCollisionObject(new CollisionCylinderInverted(box,
-                new Cylinder(
-                        new Vector3d(box.geometry.x1()+0.5, box.geometry.x2()+0.5, box.geometry.z1()-ball.getRadius()),
-                        new Vector3d(0, 0, box.geometry.displacement.z+ball.getRadius()),
-                        box.getRadius() - ball.getRadius()
-                )
-        ));
-
-        addBoxFloorSideColliders(box);
-    }
-
     /**
      * Add the collision objects that make up a ball
      * @param ball the ball
      */
     public void addBallColliders(Ball ball) {
-        addCollisionObject(new CollisionSphere(ball,
-                new Sphere(
-                        ball.getPosition(),
-                        ball.getRadius() + this.ball.getRadius()
-                )
-        ));
-    }
-
-    public void addSpikeColliders(Box box) {
-        addBoxFloorSideColliders(box);
-        ArrayList<CollisionObject> colliders = new ArrayList<>();
-
-        Line3d geometry = new Line3d(box.geometry);
-        geometry.position.set(geometry.position.x + 0.1, geometry.position.y + 0.1, box.geometry.z2());
-        geometry.displacement.set(geometry.displacement.x - 0.2, geometry.displacement.y - 0.2, 0.2);
-
-        boxFloorColliders(colliders, new Box(geometry));
-        for (CollisionObject object : colliders) {
-            addTrigger(new ExplosiveDeathTrigger(object));
+        CollisionSphere collider = ballColliders.get(ball);
+        if (collider == null) {
+            collider = new CollisionSphere(ball, new Sphere());
+            ballColliders.put(ball, collider);
         }
+        collider.set(ball.getPosition(), ball.getRadius() + this.ball.getRadius());
+        addCollisionObject(collider);
     }
 }
@@ -1,39 +1,65 @@
 package collision;
 
 import game.GameObject;
+import math.GeometryScratch;
 import shape.Line3d;
 import shape.Sphere;
 import org.joml.Vector3d;
 
+import static math.Geometry.distance;
+
 /**
  * Defines the collision properties of a shape for use in CollisionHandler
  */
 public abstract class CollisionObject implements HasCollisionObject {
     public final GameObject parent;
+
+    /**
+     * A sphere that contains the shape; used to determine whether a ball is nearby
+     */
+    protected final Sphere bounds;
     public CollisionObject(GameObject parent) {
         this.parent = parent;
+        bounds = new Sphere();
     }
 
     /**
      * Denotes the function used to reflect a line off of the shape
      * @param line the line
      * @param intersection the point of intersection between the line and the shape
+     * @param scratch temporary storage used to avoid allocating during the calculation
      */
-    public abstract void reflectLine(Line3d line, Vector3d intersection);
+    public abstract void reflectLine(Line3d line, Vector3d intersection, GeometryScratch scratch);
 
     /**
      * Determines, very approximately (may overestimate by a lot),
      * whether a ball is close enough to intersect the shape
      * @param ballSphere the geometry of the ball
      */
-    public abstract boolean isNearby(Sphere ballSphere);
+    public boolean isNearby(Sphere ballSphere) {
+        return distance(bounds.position, ballSphere.position) <= ballSphere.getRadius() + bounds.getRadius();
+    }
+    public Sphere getBounds() {
+        return bounds;
+    }
 
     /**
      * Denotes the function used to find the intersection between a line and the shape
      * @param line the line
      * @param result the vector to store the point of intersection in
+     * @param scratch temporary storage used to avoid allocating during the calculation
      */
-    public abstract boolean intersect(Line3d line, Vector3d result);
+    public abstract boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch);
+
+    /**
+     * Adds this object's shape to a ColliderStore. Objects that the store has no arrays for
+     * are stored as-is, and intersected using intersect()
+     * @param store the store
+     * @param order the position of this object in the store
+     */
+    void addToStore(ColliderStore store, int order) {
+        store.addOther(this, order);
+    }
     public CollisionObject getCollisionObject() {
         return this;
     }
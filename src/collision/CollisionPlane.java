@@ -1,9 +1,9 @@
 package collision;
 
 import game.GameObject;
+import math.GeometryScratch;
 import shape.Line3d;
 import shape.Plane;
-import shape.Sphere;
 import org.joml.Vector3d;
 
 import static math.Geometry.*;
@@ -13,30 +13,34 @@ import static math.Geometry.*;
  */
 public class CollisionPlane extends CollisionObject {
     protected final Plane plane;
-    private final Vector3d midpoint;
+    protected final Vector3d normal;
     public CollisionPlane(GameObject parent, Plane plane) {
         super(parent);
         this.plane = new Plane(plane);
-        midpoint = new Vector3d(plane.displacement1).mul(0.5).add(new Vector3d(plane.displacement2).mul(0.5)).add(plane.position);
+        normal = plane.normal();
+        bounds.set(
+                new Vector3d(plane.displacement1).mul(0.5).add(new Vector3d(plane.displacement2).mul(0.5)).add(plane.position),
+                Math.max(plane.displacement1.length(), plane.displacement2.length())
+        );
     }
 
     @Override
-    public void reflectLine(Line3d line, Vector3d intersection) {
-        parent.reflectLine(line, intersection, plane.normal());
+    public void reflectLine(Line3d line, Vector3d intersection, GeometryScratch scratch) {
+        parent.reflectLine(line, intersection, normal);
     }
 
     @Override
-    public boolean isNearby(Sphere ballSphere) {
-        return distance(midpoint, ballSphere.position) <= ballSphere.getRadius() + Math.max(plane.displacement1.length(), plane.displacement2.length());
-    }
-
-    @Override
-    public boolean intersect(Line3d line, Vector3d result) {
+    public boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch) {
         // Return false if line.displacement is moving away from the surface (i.e, when it is within 90° of the normal)
-        if (plane.normal().dot(line.displacement) > 0) {
+        if (normal.dot(line.displacement) > 0) {
             return false;
         }
 
-        return intersectionLinePlane(line, plane, result);
+        return intersectionLinePlane(line, plane, result, scratch);
+    }
+
+    @Override
+    void addToStore(ColliderStore store, int order) {
+        store.addPlane(this, order, plane, normal, false);
     }
 }
@@ -0,0 +1,39 @@
+package collision;
+
+import game.GameObject;
+import math.GeometryScratch;
+import shape.Line3d;
+import shape.Plane;
+import org.joml.Vector3d;
+
+import static math.Geometry.distance;
+
+/**
+ * Defines the collision properties of a plane with a circular hole cut out of it
+ */
+public class CollisionPlaneAnnulus extends CollisionPlane {
+    private final Vector3d holePosition;
+    private final double holeRadius;
+
+    /**
+     * @param plane the plane
+     * @param holePosition the center of the hole (must be on the plane)
+     * @param holeRadius the radius of the hole
+     */
+    public CollisionPlaneAnnulus(GameObject parent, Plane plane, Vector3d holePosition, double holeRadius) {
+        super(parent, plane);
+        this.holePosition = new Vector3d(holePosition);
+        this.holeRadius = holeRadius;
+    }
+
+    @Override
+    public boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch) {
+        return super.intersect(line, result, scratch) && distance(result, holePosition) >= holeRadius;
+    }
+
+    @Override
+    void addToStore(ColliderStore store, int order) {
+        // ColliderStore's plane arrays don't know about the hole
+        store.addOther(this, order);
+    }
+}
@@ -1,6 +1,7 @@
 package collision;
 
 import game.GameObject;
+import math.GeometryScratch;
 import shape.Line3d;
 import shape.Plane;
 import org.joml.Vector3d;
@@ -16,12 +17,17 @@ public class CollisionPlaneTriangle extends CollisionPlane {
     }
 
     @Override
-    public boolean intersect(Line3d line, Vector3d result) {
+    public boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch) {
         // Return false if line.displacement is moving away from the surface (i.e, when it is within 90° of the normal)
-        if (plane.normal().dot(line.displacement) > 0) {
+        if (normal.dot(line.displacement) > 0) {
             return false;
         }
 
-        return intersectionLinePlaneTriangle(line, plane, result);
+        return intersectionLinePlaneTriangle(line, plane, result, scratch);
+    }
+
+    @Override
+    void addToStore(ColliderStore store, int order) {
+        store.addPlane(this, order, plane, normal, true);
     }
 }
@@ -0,0 +1,275 @@
+package collision;
+
+import game.GameObject;
+import math.GeometryScratch;
+import shape.Cylinder;
+import shape.CylinderFrame;
+import shape.Line3d;
+import shape.Plane;
+import shape.Sphere;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+
+import static math.Geometry.*;
+
+/**
+ * Defines the collision properties of a spherically-extruded (rounded) box.
+ * This is the same shape as the 17 planes, cylinders, and spheres that an extruded box used to be made of:
+ * the walls and top are extruded, but the bottom is not.
+ *
+ * Instead of testing every face, edge, and corner, the line is first clipped against the box's bounding box.
+ * The sides of the box that the clipped line is on determine which faces, edges, and corners it can hit, and only those are tested.
+ *
+ * The same instance is tested against every ball, so it keeps no state between calls; temporary values are kept in the caller's GeometryScratch
+ */
+public class CollisionRoundedBox extends CollisionObject {
+    // Allowed error when deciding which faces, edges, and corners are near the point where a line enters the box
+    private static final double TOLERANCE = 0.0001;
+
+    private final double x1, y1, z1, x2, y2, z2;
+    private final double radius;
+    private final boolean hasTop;
+
+    // In the order CollisionWorld used to add them, so that ties are resolved the same way:
+    // walls, vertical edges, corners, top edges, top
+    private final Plane[] walls;
+    private final CylinderFrame[] verticalEdges;
+    private final Sphere[] corners;
+    private final CylinderFrame[] topEdges;
+    private final Plane top;
+    private final Vector3d[] wallNormals;
+    private final Vector3d topNormal;
+
+    /**
+     * @param parent the object that the box belongs to
+     * @param box the unextruded box
+     * @param radius the radius to extrude the box by (the radius of the balls colliding with it)
+     * @param hasTop false if the top of the box should not be collided with (only its edges and corners)
+     */
+    public CollisionRoundedBox(GameObject parent, Line3d box, double radius, boolean hasTop) {
+        super(parent);
+        x1 = box.x1(); y1 = box.y1(); z1 = box.z1();
+        x2 = box.x2(); y2 = box.y2(); z2 = box.z2();
+        this.radius = radius;
+        this.hasTop = hasTop;
+
+        Vector3d up = new Vector3d(0, 0, box.displacement.z);
+        walls = new Plane[] {
+                new Plane(new Vector3d(x1, y1-radius, z1), new Vector3d(box.displacement.x, 0, 0), up),
+                new Plane(new Vector3d(x2+radius, y1, z1), new Vector3d(0, box.displacement.y, 0), up),
+                new Plane(new Vector3d(x2, y2+radius, z1), new Vector3d(-box.displacement.x, 0, 0), up),
+                new Plane(new Vector3d(x1-radius, y2, z1), new Vector3d(0, -box.displacement.y, 0), up)
+        };
+        verticalEdges = new CylinderFrame[] {
+                new CylinderFrame(new Cylinder(new Vector3d(x1, y1, z1), up, radius)),
+                new CylinderFrame(new Cylinder(new Vector3d(x2, y1, z1), up, radius)),
+                new CylinderFrame(new Cylinder(new Vector3d(x2, y2, z1), up, radius)),
+                new CylinderFrame(new Cylinder(new Vector3d(x1, y2, z1), up, radius))
+        };
+        corners = new Sphere[] {
+                new Sphere(new Vector3d(x1, y1, z2), radius),
+                new Sphere(new Vector3d(x1, y2, z2), radius),
+                new Sphere(new Vector3d(x2, y2, z2), radius),
+                new Sphere(new Vector3d(x2, y1, z2), radius)
+        };
+        topEdges = new CylinderFrame[] {
+                new CylinderFrame(new Cylinder(new Vector3d(x1, y1, z2), new Vector3d(box.displacement.x, 0, 0), radius)),
+                new CylinderFrame(new Cylinder(new Vector3d(x2, y1, z2), new Vector3d(0, box.displacement.y, 0), radius)),
+                new CylinderFrame(new Cylinder(new Vector3d(x2, y2, z2), new Vector3d(-box.displacement.x, 0, 0), radius)),
+                new CylinderFrame(new Cylinder(new Vector3d(x1, y2, z2), new Vector3d(0, -box.displacement.y, 0), radius))
+        };
+        top = new Plane(
+                new Vector3d(x1, y1, z2 + radius),
+                new Vector3d(box.displacement.x, 0, 0),
+                new Vector3d(0, box.displacement.y, 0)
+        );
+        wallNormals = new Vector3d[4];
+        for (int i = 0; i < 4; i++) {
+            wallNormals[i] = walls[i].normal();
+        }
+        topNormal = top.normal();
+
+        bounds.set(
+                new Vector3d(box.displacement).mul(0.5).add(box.position).add(0, 0, radius/2),
+                0.5*Vector3d.length(box.displacement.x + 2*radius, box.displacement.y + 2*radius, box.displacement.z + radius)
+        );
+    }
+
+    @Override
+    public void reflectLine(Line3d line, Vector3d intersection, GeometryScratch scratch) {
+        // The line hasn't been reflected yet, so searching again finds the same face, edge, or corner
+        if (!intersect(line, scratch.hitPoint, scratch)) {
+            normal(intersection, scratch.hitNormal);
+        }
+        parent.reflectLine(line, intersection, scratch.hitNormal);
+    }
+
+    /**
+     * Stores the normal of the rounded box at a point on its surface into result
+     * (the direction from the closest point of the unextruded box to the point)
+     * @return result
+     */
+    public Vector3d normal(Vector3d point, Vector3d result) {
+        return result.set(
+                point.x - Math.max(x1, Math.min(x2, point.x)),
+                point.y - Math.max(y1, Math.min(y2, point.y)),
+                point.z - Math.max(z1, Math.min(z2, point.z))
+        );
+    }
+
+    /**
+     * Also stores the normal of the face, edge, or corner that was hit into scratch.hitNormal
+     * (result must not be scratch.point)
+     */
+    @Override
+    public boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch) {
+        if (!findEntry(line, scratch)) {
+            return false;
+        }
+        Vector3d entry = scratch.lineEntry, exit = scratch.lineExit;
+
+        // Which sides of the box the part of the line within the bounding box is on
+        // (it can be on multiple sides if it is near the box's edges or passes from one side to another)
+        double minX = Math.min(entry.x, exit.x), maxX = Math.max(entry.x, exit.x);
+        double minY = Math.min(entry.y, exit.y), maxY = Math.max(entry.y, exit.y);
+        double minZ = Math.min(entry.z, exit.z), maxZ = Math.max(entry.z, exit.z);
+        boolean isLeft = minX < x1 + TOLERANCE;
+        boolean isRight = maxX > x2 - TOLERANCE;
+        boolean isWithinX = maxX > x1 - TOLERANCE && minX < x2 + TOLERANCE;
+        boolean isBelow = minY < y1 + TOLERANCE;
+        boolean isAbove = maxY > y2 - TOLERANCE;
+        boolean isWithinY = maxY > y1 - TOLERANCE && minY < y2 + TOLERANCE;
+        boolean isOnTop = maxZ > z2 - TOLERANCE;
+        boolean isWithinZ = minZ < z2 + TOLERANCE;
+
+        // The line can enter through the bottom (or the top, if there isn't one) and hit the insides of any of the edges and corners
+        if (entry.z < z1 + TOLERANCE) {
+            isLeft = isRight = isBelow = isAbove = isOnTop = true;
+        } else if (!hasTop && entry.z > z2 - TOLERANCE && isWithinX && isWithinY) {
+            isLeft = isRight = isBelow = isAbove = true;
+        }
+
+        double minDistance = Double.POSITIVE_INFINITY;
+
+        // Faces
+        if (isWithinZ) {
+            if (isBelow && isWithinX) minDistance = offerWall(line, 0, minDistance, result, scratch);
+            if (isRight && isWithinY) minDistance = offerWall(line, 1, minDistance, result, scratch);
+            if (isAbove && isWithinX) minDistance = offerWall(line, 2, minDistance, result, scratch);
+            if (isLeft && isWithinY) minDistance = offerWall(line, 3, minDistance, result, scratch);
+        }
+
+        // Vertical edges
+        if (isLeft && isBelow) minDistance = offerCylinder(line, verticalEdges[0], minDistance, result, scratch);
+        if (isRight && isBelow) minDistance = offerCylinder(line, verticalEdges[1], minDistance, result, scratch);
+        if (isRight && isAbove) minDistance = offerCylinder(line, verticalEdges[2], minDistance, result, scratch);
+        if (isLeft && isAbove) minDistance = offerCylinder(line, verticalEdges[3], minDistance, result, scratch);
+
+        // Corners (at the ends of the edges next to the entry point)
+        if (isNearCorner(isLeft, isBelow, isOnTop)) minDistance = offerSphere(line, corners[0], minDistance, result, scratch);
+        if (isNearCorner(isLeft, isAbove, isOnTop)) minDistance = offerSphere(line, corners[1], minDistance, result, scratch);
+        if (isNearCorner(isRight, isAbove, isOnTop)) minDistance = offerSphere(line, corners[2], minDistance, result, scratch);
+        if (isNearCorner(isRight, isBelow, isOnTop)) minDistance = offerSphere(line, corners[3], minDistance, result, scratch);
+
+        // Top edges and top
+        if (isOnTop) {
+            if (isBelow) minDistance = offerCylinder(line, topEdges[0], minDistance, result, scratch);
+            if (isRight) minDistance = offerCylinder(line, topEdges[1], minDistance, result, scratch);
+            if (isAbove) minDistance = offerCylinder(line, topEdges[2], minDistance, result, scratch);
+            if (isLeft) minDistance = offerCylinder(line, topEdges[3], minDistance, result, scratch);
+            if (hasTop && isWithinX && isWithinY && topNormal.dot(line.displacement) <= 0
+                    && intersectionLinePlane(line, top, scratch.point, scratch)) {
+                minDistance = offer(line, topNormal, minDistance, result, scratch);
+            }
+        }
+
+        return minDistance != Double.POSITIVE_INFINITY;
+    }
+
+    private static boolean isNearCorner(boolean isOnSideX, boolean isOnSideY, boolean isOnTop) {
+        return (isOnSideX || isOnTop) && (isOnSideY || isOnTop) && (isOnSideX || isOnSideY);
+    }
+
+    /**
+     * Clips the line against the box's bounding box (the extruded box with square edges)
+     * and stores the point where it enters (or its position, if it starts inside) into scratch.lineEntry,
+     * and the point where it leaves (or its end, if it ends inside) into scratch.lineExit
+     * @return false if the line does not pass through the bounding box
+     */
+    private boolean findEntry(Line3d line, GeometryScratch scratch) {
+        // The range of t within the bounding box, as (tEnter, tExit)
+        Vector2d range = scratch.lineRange.set(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        // The top edges and corners reach down to z2 - radius, which is below z1 if the box is shorter than the radius
+        if (!clip(line.position.x, line.displacement.x, x1 - radius, x2 + radius, range)
+                || !clip(line.position.y, line.displacement.y, y1 - radius, y2 + radius, range)
+                || !clip(line.position.z, line.displacement.z, Math.min(z1, z2 - radius), z2 + radius, range)) {
+            return false;
+        }
+        if (range.x > 1 || range.y < 0) {
+            return false;
+        }
+        scaleLine(line, Math.max(0, range.x), scratch.lineEntry);
+        scaleLine(line, Math.min(1, range.y), scratch.lineExit);
+        return true;
+    }
+
+    /**
+     * Narrows range down to the part of a line that is within [min, max] along one axis
+     * @param position the line's position along the axis
+     * @param displacement the line's displacement along the axis
+     * @return false if no part of the line is within [min, max]
+     */
+    private static boolean clip(double position, double displacement, double min, double max, Vector2d range) {
+        min -= TOLERANCE;
+        max += TOLERANCE;
+        if (displacement == 0) {
+            return min <= position && position <= max;
+        }
+        double t1 = (min - position) / displacement;
+        double t2 = (max - position) / displacement;
+        range.x = Math.max(range.x, Math.min(t1, t2));
+        range.y = Math.min(range.y, Math.max(t1, t2));
+        return range.x <= range.y;
+    }
+
+    private double offerWall(Line3d line, int i, double minDistance, Vector3d result, GeometryScratch scratch) {
+        // Ignore walls that the line is moving away from
+        if (wallNormals[i].dot(line.displacement) > 0) {
+            return minDistance;
+        }
+        if (!intersectionLinePlane(line, walls[i], scratch.point, scratch)) {
+            return minDistance;
+        }
+        return offer(line, wallNormals[i], minDistance, result, scratch);
+    }
+    private double offerCylinder(Line3d line, CylinderFrame cylinder, double minDistance, Vector3d result, GeometryScratch scratch) {
+        if (!intersectionLineCylinder(line, cylinder, scratch.point)
+                || cylinder.normal(scratch.point, scratch.normal).dot(line.displacement) >= 0) {
+            return minDistance;
+        }
+        return offer(line, scratch.normal, minDistance, result, scratch);
+    }
+    private double offerSphere(Line3d line, Sphere sphere, double minDistance, Vector3d result, GeometryScratch scratch) {
+        if (!intersectionLineSphere(line, sphere, scratch.point, scratch)
+                || sphere.normal(scratch.point, scratch.normal).dot(line.displacement) >= 0) {
+            return minDistance;
+        }
+        return offer(line, scratch.normal, minDistance, result, scratch);
+    }
+
+    /**
+     * Stores the intersection in scratch.point into result (and the normal there into scratch.hitNormal)
+     * if it is at least as close to the line's position as the closest intersection so far
+     * @param featureNormal the normal of the face, edge, or corner at the intersection
+     * @return the distance to the closest intersection
+     */
+    private static double offer(Line3d line, Vector3d featureNormal, double minDistance, Vector3d result, GeometryScratch scratch) {
+        double distance = distance(scratch.point, line.position);
+        if (distance <= minDistance) {
+            result.set(scratch.point);
+            scratch.hitNormal.set(featureNormal);
+            return distance;
+        }
+        return minDistance;
+    }
+}
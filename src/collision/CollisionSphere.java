@@ -1,6 +1,7 @@
 package collision;
 
 import game.GameObject;
+import math.GeometryScratch;
 import shape.Line3d;
 import shape.Sphere;
 import org.joml.Vector3d;
@@ -14,22 +15,31 @@ public class CollisionSphere extends CollisionObject {
     private final Sphere sphere;
     public CollisionSphere(GameObject parent, Sphere sphere) {
         super(parent);
-        this.sphere = new Sphere(sphere);
+        this.sphere = new Sphere();
+        set(sphere.position, sphere.getRadius());
+    }
+
+    /**
+     * Moves and resizes the sphere (used to reuse the colliders of moving balls)
+     */
+    public void set(Vector3d position, double radius) {
+        sphere.set(position, radius);
+        bounds.set(position, radius + 0.2);
     }
 
     @Override
-    public void reflectLine(Line3d line, Vector3d intersection) {
-        parent.reflectLine(line, intersection, sphere.normal(intersection));
+    public void reflectLine(Line3d line, Vector3d intersection, GeometryScratch scratch) {
+        parent.reflectLine(line, intersection, sphere.normal(intersection, scratch.normal));
     }
 
     @Override
-    public boolean isNearby(Sphere ballSphere) {
-        return distance(sphere.position, ballSphere.position) <= sphere.getRadius() + ballSphere.getRadius() + 0.2;
+    public boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch) {
+        boolean intersects = intersectionLineSphere(line, sphere, result, scratch);
+        return intersects && sphere.normal(result, scratch.normal).dot(line.displacement) < 0;
     }
 
     @Override
-    public boolean intersect(Line3d line, Vector3d result) {
-        boolean intersects = intersectionLineSphere(line, sphere, result);
-        return intersects && sphere.normal(result).dot(line.displacement) < 0;
+    void addToStore(ColliderStore store, int order) {
+        store.addSphere(this, order, sphere);
     }
 }
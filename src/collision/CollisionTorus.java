@@ -0,0 +1,32 @@
+package collision;
+
+import game.GameObject;
+import math.GeometryScratch;
+import shape.Line3d;
+import shape.Torus;
+import org.joml.Vector3d;
+
+import static math.Geometry.*;
+
+/**
+ * Defines the collision properties of a torus
+ */
+public class CollisionTorus extends CollisionObject {
+    private final Torus torus;
+    public CollisionTorus(GameObject parent, Torus torus) {
+        super(parent);
+        this.torus = new Torus(torus);
+        bounds.set(torus.position, torus.getMajorRadius() + torus.getMinorRadius());
+    }
+
+    @Override
+    public void reflectLine(Line3d line, Vector3d intersection, GeometryScratch scratch) {
+        parent.reflectLine(line, intersection, torus.normal(intersection, scratch.normal));
+    }
+
+    @Override
+    public boolean intersect(Line3d line, Vector3d result, GeometryScratch scratch) {
+        boolean intersects = intersectionLineTorus(line, torus, result, scratch);
+        return intersects && torus.normal(result, scratch.normal).dot(line.displacement) < 0;
+    }
+}
@@ -16,6 +16,9 @@ public abstract class CollisionTrigger implements HasCollisionObject {
     public boolean isActive() {
         return isActive;
     }
+    public void enable() {
+        isActive = true;
+    }
     public void disable() {
         isActive = false;
     }
@@ -0,0 +1,184 @@
+package collision;
+
+import game.Box;
+import game.HoleBox;
+import shape.Cylinder;
+import shape.Line3d;
+import shape.Plane;
+import shape.Sphere;
+import shape.Torus;
+import org.joml.Vector3d;
+
+import java.util.ArrayList;
+
+/**
+ * Stores the static collision objects and triggers of a level (everything except balls).
+ * These only depend on the level's tiles and the radius of the balls colliding with them,
+ * so they are compiled once and reused every frame until the set of colliders changes.
+ * Objects are bucketed by the level's tile grid so that finding the ones near a ball does not depend on the size of the level.
+ * Triggers that span the whole level (which would be added to every cell) are kept in a list instead, and returned for every ball
+ */
+public class CollisionWorld {
+    private final CollisionGrid<CollisionObject> collisionObjects;
+    private final CollisionGrid<CollisionTrigger> triggers;
+    private final ArrayList<CollisionTrigger> unboundedTriggers;
+    private final ArrayList<HoleBox> holeBoxes;
+    private double ballRadius;
+    private int compiledFilledHoles;
+    private boolean isValid;
+    public CollisionWorld() {
+        collisionObjects = new CollisionGrid<>();
+        triggers = new CollisionGrid<>();
+        unboundedTriggers = new ArrayList<>();
+        holeBoxes = new ArrayList<>();
+        isValid = false;
+    }
+
+    /**
+     * Removes all collision objects and triggers, preparing the world to be recompiled
+     * @param ballRadius the radius of the balls that will collide with this world
+     * @param minX the x-coordinate of the left edge of the level's tile grid
+     * @param minY the y-coordinate of the bottom edge of the level's tile grid
+     * @param columns the number of columns of tiles in the level
+     * @param rows the number of rows of tiles in the level
+     */
+    public void reset(double ballRadius, double minX, double minY, int columns, int rows) {
+        collisionObjects.reset(minX, minY, columns, rows);
+        triggers.reset(minX, minY, columns, rows);
+        unboundedTriggers.clear();
+        holeBoxes.clear();
+        this.ballRadius = ballRadius;
+        compiledFilledHoles = 0;
+        isValid = true;
+    }
+
+    /**
+     * Marks the world as needing to be recompiled
+     */
+    public void invalidate() {
+        isValid = false;
+    }
+
+    /**
+     * @return false if the world has been invalidated or a hole has been filled since it was compiled; true otherwise
+     */
+    public boolean isValid() {
+        return isValid && filledHoles() == compiledFilledHoles;
+    }
+    private int filledHoles() {
+        int count = 0;
+        for (HoleBox box : holeBoxes) {
+            if (box.hasReachedGoal()) count++;
+        }
+        return count;
+    }
+    public double getBallRadius() {
+        return ballRadius;
+    }
+
+    /**
+     * Adds the collision objects that share a grid cell with a sphere to result
+     */
+    public void queryCollisionObjects(Sphere sphere, ArrayList<CollisionObject> result) {
+        collisionObjects.query(sphere, result);
+    }
+
+    /**
+     * Adds the triggers that share a grid cell with a sphere to result, followed by the triggers that span the whole level
+     */
+    public void queryTriggers(Sphere sphere, ArrayList<CollisionTrigger> result) {
+        triggers.query(sphere, result);
+        for (int i = 0; i < unboundedTriggers.size(); i++) {
+            result.add(unboundedTriggers.get(i));
+        }
+    }
+
+    private void addCollisionObject(CollisionObject object) {
+        collisionObjects.add(object);
+    }
+    private void addTrigger(CollisionTrigger trigger) {
+        triggers.add(trigger);
+    }
+
+    /**
+     * Add the death trigger that kills balls that fall off the board
+     */
+    public void addFallDeathTrigger() {
+        unboundedTriggers.add(new DeathTrigger(new CollisionPlane(null, new Plane(
+                new Vector3d(-100, -100, -3),
+                new Vector3d(200, 0, 0),
+                new Vector3d(0, 200, 0)
+        ))));
+    }
+
+    /**
+     * Add the collision object that makes up the sides of the floor of a box (everything except its top)
+     * @param box the box
+     */
+    public void addBoxFloorSideColliders(Box box) {
+        addCollisionObject(new CollisionRoundedBox(box, box.geometry, ballRadius, false));
+    }
+
+    /**
+     * Add the collision object that makes up the floor of the box
+     * @param box the box
+     */
+    public void addBoxFloorColliders(Box box) {
+        addCollisionObject(new CollisionRoundedBox(box, box.geometry, ballRadius, true));
+    }
+    /**
+     * Add the collision objects that make up hole boxes
+     * @param box the box
+     */
+    public void addHoleBoxColliders(HoleBox box) {
+        holeBoxes.add(box);
+        if (box.hasReachedGoal()) compiledFilledHoles++;
+
+        addTrigger(new GoalTrigger(new CollisionPlane(box, new Plane(
+                box.geometry.position,
+                new Vector3d(box.geometry.displacement.x, 0, 0),
+                new Vector3d(0, box.geometry.displacement.y, 0)
+        )), box));
+
+        // Act as a regular tile if the correct ball has fallen into the hole,
+        // or if the balls are too big to fit into it (e.g, exploding balls)
+        if (box.hasReachedGoal() || ballRadius >= box.getRadius()) {
+            addBoxFloorColliders(box);
+            return;
+        }
+
+        // The hole, when spherically extruded, forms a torus (around the rim),
+        // a plane with a hole in it (around the torus), and an inverted cylinder (inside the torus)
+        Vector3d holePosition = new Vector3d(box.geometry.x1()+0.5, box.geometry.y1()+0.5, box.geometry.z2());
+
+        addCollisionObject(new CollisionPlaneAnnulus(box,
+                new Plane(
+                        new Vector3d(box.geometry.x1(), box.geometry.y1(), box.geometry.z2()+ballRadius),
+                        new Vector3d(box.geometry.displacement.x, 0, 0),
+                        new Vector3d(0, box.geometry.displacement.y, 0)
+                ),
+                new Vector3d(holePosition).add(0, 0, ballRadius),
+                box.getRadius()
+        ));
+        addCollisionObject(new CollisionTorus(box, new Torus(holePosition, box.getRadius(), ballRadius)));
+        addCollisionObject(new CollisionCylinderInverted(box,
+                new Cylinder(
+                        new Vector3d(box.geometry.x1()+0.5, box.geometry.y1()+0.5, box.geometry.z1()-ballRadius),
+                        new Vector3d(0, 0, box.geometry.displacement.z+ballRadius),
+                        box.getRadius() - ballRadius
+                )
+        ));
+
+        addBoxFloorSideColliders(box);
+    }
+
+    public void addSpikeColliders(Box box) {
+        addBoxFloorSideColliders(box);
+
+        Line3d geometry = new Line3d(box.geometry);
+        geometry.position.set(geometry.position.x + 0.1, geometry.position.y + 0.1, box.geometry.z2());
+        geometry.displacement.set(geometry.displacement.x - 0.2, geometry.displacement.y - 0.2, 0.2);
+
+        addTrigger(new ExplosiveDeathTrigger(new CollisionRoundedBox(new Box(geometry), geometry, ballRadius, true)));
+    }
+}
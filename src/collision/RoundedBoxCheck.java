@@ -0,0 +1,190 @@
+package collision;
+
+import game.GameObject;
+import math.GeometryScratch;
+import shape.Cylinder;
+import shape.Line3d;
+import shape.Plane;
+import shape.Sphere;
+import org.joml.Vector3d;
+
+import java.util.Random;
+
+import static math.Geometry.distance;
+
+/**
+ * Checks that CollisionRoundedBox collides the same way as the 17 planes, cylinders, and spheres it replaced,
+ * on random boxes (including ones shorter than the radius, like the spike trigger, and ones without a top)
+ * and random lines that start outside of them.
+ *
+ * For every line, both must find the same closest intersection and reflect the line off of the same normal.
+ * Usage: RoundedBoxCheck [lines] [seed]
+ */
+public class RoundedBoxCheck {
+    private static final int LINES_PER_BOX = 100;
+
+    // Allowed difference between the intersections, and between the directions of the normals
+    private static final double POSITION_TOLERANCE = 1e-9;
+    private static final double NORMAL_TOLERANCE = 1e-9;
+
+    /**
+     * Records the normal that a line was reflected off of
+     */
+    private static class NormalRecorder extends GameObject {
+        final Vector3d normal = new Vector3d();
+
+        @Override
+        public Vector3d getPosition() {
+            return new Vector3d();
+        }
+
+        @Override
+        public void reflectLine(Line3d line, Vector3d intersection, Vector3d normal) {
+            this.normal.set(normal).normalize();
+        }
+    }
+
+    /**
+     * @return the colliders that a box extruded by radius used to be made of, in the order they were added
+     */
+    private static CollisionObject[] oldColliders(GameObject parent, Line3d box, double radius, boolean hasTop) {
+        double x1 = box.x1(), y1 = box.y1(), z1 = box.z1(), x2 = box.x2(), y2 = box.y2(), z2 = box.z2();
+        double dx = box.displacement.x, dy = box.displacement.y;
+        Vector3d up = new Vector3d(0, 0, box.displacement.z);
+        CollisionObject[] colliders = new CollisionObject[hasTop ? 17 : 16];
+        colliders[0] = new CollisionPlane(parent, new Plane(new Vector3d(x1, y1-radius, z1), new Vector3d(dx, 0, 0), up));
+        colliders[1] = new CollisionPlane(parent, new Plane(new Vector3d(x2+radius, y1, z1), new Vector3d(0, dy, 0), up));
+        colliders[2] = new CollisionPlane(parent, new Plane(new Vector3d(x2, y2+radius, z1), new Vector3d(-dx, 0, 0), up));
+        colliders[3] = new CollisionPlane(parent, new Plane(new Vector3d(x1-radius, y2, z1), new Vector3d(0, -dy, 0), up));
+        colliders[4] = new CollisionCylinder(parent, new Cylinder(new Vector3d(x1, y1, z1), up, radius));
+        colliders[5] = new CollisionCylinder(parent, new Cylinder(new Vector3d(x2, y1, z1), up, radius));
+        colliders[6] = new CollisionCylinder(parent, new Cylinder(new Vector3d(x2, y2, z1), up, radius));
+        colliders[7] = new CollisionCylinder(parent, new Cylinder(new Vector3d(x1, y2, z1), up, radius));
+        colliders[8] = new CollisionSphere(parent, new Sphere(new Vector3d(x1, y1, z2), radius));
+        colliders[9] = new CollisionSphere(parent, new Sphere(new Vector3d(x1, y2, z2), radius));
+        colliders[10] = new CollisionSphere(parent, new Sphere(new Vector3d(x2, y2, z2), radius));
+        colliders[11] = new CollisionSphere(parent, new Sphere(new Vector3d(x2, y1, z2), radius));
+        colliders[12] = new CollisionCylinder(parent, new Cylinder(new Vector3d(x1, y1, z2), new Vector3d(dx, 0, 0), radius));
+        colliders[13] = new CollisionCylinder(parent, new Cylinder(new Vector3d(x2, y1, z2), new Vector3d(0, dy, 0), radius));
+        colliders[14] = new CollisionCylinder(parent, new Cylinder(new Vector3d(x2, y2, z2), new Vector3d(-dx, 0, 0), radius));
+        colliders[15] = new CollisionCylinder(parent, new Cylinder(new Vector3d(x1, y2, z2), new Vector3d(0, -dy, 0), radius));
+        if (hasTop) {
+            colliders[16] = new CollisionPlane(parent, new Plane(
+                    new Vector3d(x1, y1, z2 + radius), new Vector3d(dx, 0, 0), new Vector3d(0, dy, 0)
+            ));
+        }
+        return colliders;
+    }
+
+    /**
+     * Finds the closest intersection the same way CollisionHandler does (later colliders win ties)
+     * @return the collider that was hit, or null
+     */
+    private static CollisionObject closestIntersection(CollisionObject[] colliders, Line3d line, Vector3d result,
+                                                       GeometryScratch scratch) {
+        Vector3d intersection = new Vector3d();
+        CollisionObject closest = null;
+        double minDistance = Double.POSITIVE_INFINITY;
+        for (CollisionObject collider : colliders) {
+            if (collider.intersect(line, intersection, scratch)) {
+                double distance = distance(intersection, line.position);
+                if (distance <= minDistance) {
+                    minDistance = distance;
+                    closest = collider;
+                    result.set(intersection);
+                }
+            }
+        }
+        return closest;
+    }
+
+    private static double randomSize(Random random) {
+        // Mostly tile-sized boxes, with some arbitrary ones
+        return switch (random.nextInt(4)) {
+            case 0 -> 1;
+            case 1 -> 0.5;
+            default -> 0.05 + random.nextDouble();
+        };
+    }
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+
+        GeometryScratch scratch = new GeometryScratch();
+        NormalRecorder oldParent = new NormalRecorder();
+        NormalRecorder newParent = new NormalRecorder();
+        Vector3d oldIntersection = new Vector3d();
+        Vector3d newIntersection = new Vector3d();
+        Vector3d closest = new Vector3d();
+
+        int hits = 0, missing = 0, extra = 0, moved = 0, normalsDiffer = 0;
+        for (int i = 0; i < lines; i += LINES_PER_BOX) {
+            double radius = random.nextBoolean() ? 0.35 : 0.1 + 0.4*random.nextDouble();
+            Line3d box = new Line3d(
+                    new Vector3d(random.nextInt(7) - 3, random.nextInt(7) - 3, random.nextInt(3) - 1),
+                    new Vector3d(randomSize(random), randomSize(random), random.nextBoolean() ? 0.2 : randomSize(random))
+            );
+            boolean hasTop = random.nextInt(4) != 0;
+            CollisionObject[] oldColliders = oldColliders(oldParent, box, radius, hasTop);
+            CollisionRoundedBox roundedBox = new CollisionRoundedBox(newParent, box, radius, hasTop);
+
+            for (int j = 0; j < LINES_PER_BOX; j++) {
+                // Start somewhere around the box, but not inside it
+                Vector3d position = new Vector3d(
+                        box.x1() - 1 + (box.displacement.x + 2)*random.nextDouble(),
+                        box.y1() - 1 + (box.displacement.y + 2)*random.nextDouble(),
+                        box.z1() - 1 + (box.displacement.z + 2)*random.nextDouble()
+                );
+                closest.set(
+                        Math.max(box.x1(), Math.min(box.x2(), position.x)),
+                        Math.max(box.y1(), Math.min(box.y2(), position.y)),
+                        Math.max(box.z1(), Math.min(box.z2(), position.z))
+                );
+                if (distance(position, closest) < radius + 1e-6) {
+                    j--;
+                    continue;
+                }
+                // Mostly the short lines that balls move along in a tick, with some long ones
+                double length = random.nextInt(4) == 0 ? 2*random.nextDouble() : 0.1*random.nextDouble();
+                // Aim half of them at a random point on or around the box
+                Vector3d displacement = random.nextBoolean()
+                        ? new Vector3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian())
+                        : new Vector3d(
+                                box.x1() - radius + (box.displacement.x + 2*radius)*random.nextDouble(),
+                                box.y1() - radius + (box.displacement.y + 2*radius)*random.nextDouble(),
+                                box.z1() + (box.displacement.z + radius)*random.nextDouble()
+                        ).sub(position);
+                displacement.normalize(length);
+                Line3d line = new Line3d(position, displacement);
+
+                CollisionObject oldHit = closestIntersection(oldColliders, line, oldIntersection, scratch);
+                boolean newHit = roundedBox.intersect(line, newIntersection, scratch);
+                if (oldHit == null) {
+                    if (newHit) extra++;
+                    continue;
+                }
+                if (!newHit) {
+                    missing++;
+                    continue;
+                }
+                hits++;
+                if (distance(oldIntersection, newIntersection) > POSITION_TOLERANCE) {
+                    moved++;
+                    continue;
+                }
+                oldHit.reflectLine(new Line3d(line), oldIntersection, scratch);
+                roundedBox.reflectLine(new Line3d(line), newIntersection, scratch);
+                if (distance(oldParent.normal, newParent.normal) > NORMAL_TOLERANCE) {
+                    normalsDiffer++;
+                }
+            }
+        }
+
+        System.out.printf("%d lines, %d hits: %d missing, %d extra, %d at a different point, %d with a different normal%n",
+                lines, hits, missing, extra, moved, normalsDiffer);
+        if (missing + extra + moved + normalsDiffer > 0) {
+            System.exit(1);
+        }
+    }
+}
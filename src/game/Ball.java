@@ -1,18 +1,13 @@
 package game;
 
-import audio.AudioHandler;
-import audio.AudioSource;
 import math.Geometry;
-import org.joml.Matrix3f;
 import org.joml.Vector3f;
 import shape.Line3d;
 import shape.Sphere;
-import org.joml.Matrix4f;
 import org.joml.Vector3d;
 
 import static math.Geometry.project;
 import static math.MathUtil.cubicInterpolation;
-import static util.Util.vector3dTo3f;
 
 /**
  * Represents the balls you have to maneuver into the holes
@@ -29,17 +24,16 @@ public class Ball extends GameObject {
     private int holeColor;
 
     private double lastCollisionSpeed;
-    private final AudioSource collisionSound;
-    private final AudioSource snapSound;
-    private final AudioSource goalSound;
-    private final AudioSource explosionSound;
+    private BallListener listener;
     private boolean shouldSnap;
     private final Vector3f previousPosition;
     private boolean shouldSplash;
     private boolean hasSplashed;
-    private final Vector3f snapPosition;
+    private final Vector3d snapPosition;
     private boolean shouldExplode;
-    public Ball(AudioHandler audioHandler) {
+    private final Vector3d soundPosition;
+    private final Vector3d normalComponent;
+    public Ball() {
         super();
         velocity = new Vector3d();
         geometry = new Sphere();
@@ -47,21 +41,27 @@ public class Ball extends GameObject {
         explosionTimer = new FrameTimer(72);
         explosionPosition = new Vector3d();
 
-        collisionSound = new AudioSource(audioHandler.clackSound, false, false);
-        snapSound = new AudioSource(audioHandler.snapSound, false, false);
-        goalSound = new AudioSource(audioHandler.splashSound, false, false);
-        explosionSound = new AudioSource(audioHandler.explosionSound, false, false);
         previousPosition = new Vector3f(-727, 0, 0);
-        snapPosition = new Vector3f();
+        snapPosition = new Vector3d();
+        soundPosition = new Vector3d();
+        normalComponent = new Vector3d();
     }
-    public Ball(Sphere geometry, AudioHandler audioHandler) {
-        this(audioHandler);
+    public Ball(Sphere geometry) {
+        this();
         this.geometry.set(geometry);
     }
-    public void update(Matrix3f globalRotationMatrix) {
+
+    /**
+     * Sets the object to notify when the ball makes a sound
+     * @param listener the listener, or null to not notify anything
+     */
+    public void setListener(BallListener listener) {
+        this.listener = listener;
+    }
+    public void update() {
         explosionTimer.advanceFrame();
 
-        Vector3f position = vector3dTo3f(geometry.position).mul(globalRotationMatrix);
+        Vector3d position = soundPosition.set(geometry.position);
         if (explosionTimer.isActive()) {
             geometry.position.set(explosionPosition);
             geometry.setRadius(1.5 - 1.5*cubicInterpolation(cubicInterpolation(explosionTimer.percentage())));
@@ -72,9 +72,8 @@ public class Ball extends GameObject {
             if (explosionTimer.isOnLastFrame()) {
                 isDead = true;
             }
-            if (explosionTimer.getFrame() == 2) {
-                explosionSound.setPosition(position);
-                explosionSound.play();
+            if (explosionTimer.getFrame() == 2 && listener != null) {
+                listener.onExplosion(position);
             }
             return;
         }
@@ -92,20 +91,15 @@ public class Ball extends GameObject {
 //        previousPosition.set(position);
 //        Vector3f velocity = vector3dTo3f(this.velocity);
         if (lastCollisionSpeed > 0.001) {
-            collisionSound.setPosition(position);
-            float gain = Math.min(4, (float)lastCollisionSpeed / 0.01f);
-            collisionSound.setGain(gain);
-            collisionSound.play();
+            if (listener != null) listener.onCollision(position, lastCollisionSpeed);
             lastCollisionSpeed = 0;
         }
         if (shouldSnap) {
-            snapSound.setPosition(snapPosition.mul(globalRotationMatrix));
-            snapSound.play();
+            if (listener != null) listener.onSnap(snapPosition);
             shouldSnap = false;
         }
         if (shouldSplash && !hasSplashed) {
-            goalSound.setPosition(position);
-            goalSound.play();
+            if (listener != null) listener.onGoal(position);
             hasSplashed = true;
         }
     }
@@ -147,17 +141,21 @@ public class Ball extends GameObject {
         shouldSnap = true;
         snapPosition.set(position);
     }
+    public void queueSnap(Vector3d position) {
+        shouldSnap = true;
+        snapPosition.set(position);
+    }
     public void queueSplash() {
         shouldSplash = true;
     }
     @Override
-    public Matrix4f getWorldMatrix(Vector3d globalRotation) {
-        return worldMatrix.identity()
-                .rotateX((float)globalRotation.x)
-                .rotateY((float)globalRotation.y)
-                .rotateZ((float)globalRotation.z)
-                .translate((float)getPosition().x, (float)getPosition().y, (float)getPosition().z)
-                .scale((float)getRadius());
+    public double getScale() {
+        return getRadius();
+    }
+    @Override
+    public void getBounds(Vector3d min, Vector3d max) {
+        min.set(getPosition()).sub(getRadius(), getRadius(), getRadius());
+        max.set(getPosition()).add(getRadius(), getRadius(), getRadius());
     }
     @Override
     public void reflectLine(Line3d line, Vector3d intersection, Vector3d normal) {
@@ -166,7 +164,6 @@ public class Ball extends GameObject {
 
         // Rebound this ball as well
         // Velocity is deferred to the next frame to ensure that collisions are handled before the velocity adds to position
-        Vector3d normalComponent = new Vector3d();
         deferredVelocity.set(velocity);
         project(deferredVelocity, normal, normalComponent);
         deferredVelocity.sub(normalComponent);
@@ -175,14 +172,6 @@ public class Ball extends GameObject {
         deferredVelocity.sub(normalComponent);
         velocityDeferred = true;
 
-        queueSnap(vector3dTo3f(intersection));
-    }
-
-    public void delete() {
-        collisionSound.delete();
-        snapSound.delete();
-        goalSound.delete();
-        explosionSound.delete();
-//        buffer.delete();
+        queueSnap(intersection);
     }
 }
@@ -0,0 +1,66 @@
+package game;
+
+import audio.AudioHandler;
+import audio.AudioSource;
+import org.joml.Matrix3f;
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+import util.Deletable;
+
+/**
+ * Plays the sounds of a ball
+ */
+public class BallAudio implements BallListener, Deletable {
+    private final AudioSource collisionSound;
+    private final AudioSource snapSound;
+    private final AudioSource goalSound;
+    private final AudioSource explosionSound;
+    private final Matrix3f rotationMatrix;
+    private final Vector3f soundPosition;
+
+    /**
+     * @param rotationMatrix the rotation of the level the ball is in. Read whenever a sound is played
+     */
+    public BallAudio(AudioHandler audioHandler, Matrix3f rotationMatrix) {
+        this.rotationMatrix = rotationMatrix;
+        collisionSound = new AudioSource(audioHandler.clackSound, false, false);
+        snapSound = new AudioSource(audioHandler.snapSound, false, false);
+        goalSound = new AudioSource(audioHandler.splashSound, false, false);
+        explosionSound = new AudioSource(audioHandler.explosionSound, false, false);
+        soundPosition = new Vector3f();
+    }
+
+    private Vector3f rotate(Vector3d position) {
+        return soundPosition.set(position).mul(rotationMatrix);
+    }
+
+    @Override
+    public void onCollision(Vector3d position, double speed) {
+        collisionSound.setPosition(rotate(position));
+        float gain = Math.min(4, (float)speed / 0.01f);
+        collisionSound.setGain(gain);
+        collisionSound.play();
+    }
+    @Override
+    public void onSnap(Vector3d position) {
+        snapSound.setPosition(rotate(position));
+        snapSound.play();
+    }
+    @Override
+    public void onGoal(Vector3d position) {
+        goalSound.setPosition(rotate(position));
+        goalSound.play();
+    }
+    @Override
+    public void onExplosion(Vector3d position) {
+        explosionSound.setPosition(rotate(position));
+        explosionSound.play();
+    }
+
+    public void delete() {
+        collisionSound.delete();
+        snapSound.delete();
+        goalSound.delete();
+        explosionSound.delete();
+    }
+}
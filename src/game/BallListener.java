@@ -0,0 +1,21 @@
+package game;
+
+import org.joml.Vector3d;
+
+/**
+ * Receives the events of a ball that make a sound.
+ * Positions are in the level's coordinates (before the level's rotation is applied)
+ */
+public interface BallListener {
+    /**
+     * @param speed the change in the ball's speed caused by the collision
+     */
+    void onCollision(Vector3d position, double speed);
+
+    /**
+     * Called when another ball collides into this one
+     */
+    void onSnap(Vector3d position);
+    void onGoal(Vector3d position);
+    void onExplosion(Vector3d position);
+}
@@ -0,0 +1,202 @@
+package game;
+
+import org.joml.Vector3d;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Simulates every level in assets/levels/main and assets/levels/extras without a window or audio device,
+ * in parallel, and reports how each one went.
+ *
+ * Each level is played once per RotationScript, with the script standing in for the player's mouse.
+ * Only the "seek" script (see GoalSeekingScript) tries to win; it wins the levels where every ball can roll to its hole without help,
+ * but not ones that need gaps to be jumped or balls to be steered around each other, so most levels are never won.
+ * The levels that no script won are listed at the end of the output.
+ * Usage: BatchSimulator [max ticks per level] [threads]
+ */
+public class BatchSimulator {
+    private static final String[] LEVEL_DIRECTORIES = {"main", "extras"};
+
+    // Ticks per second of the game loop (see GameScene)
+    private static final int TICK_RATE = 144;
+
+    // The largest rotation the player can tilt the level by (see SimulationThread.update())
+    static final double MAX_TILT = Math.PI/6;
+
+    /**
+     * Produces the rotation of a level on a given tick
+     */
+    public interface RotationScript {
+        void rotation(int tick, LevelSimulation simulation, Vector3d result);
+    }
+
+    /**
+     * A named RotationScript
+     */
+    public static class Script {
+        public final String name;
+        private final Supplier<RotationScript> factory;
+        public Script(String name, RotationScript script) {
+            this(name, () -> script);
+        }
+
+        /**
+         * @param factory creates the script for each run (for scripts that keep state)
+         */
+        public Script(String name, Supplier<RotationScript> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+        public RotationScript create() {
+            return factory.get();
+        }
+    }
+
+    public static final Script[] DEFAULT_SCRIPTS = {
+            new Script("still", (tick, simulation, result) -> result.set(0, 0, 0)),
+            // Tilt in a circle once every 10 seconds
+            new Script("circle", (tick, simulation, result) -> {
+                double angle = 2*Math.PI * tick / (10.0*TICK_RATE);
+                result.set(MAX_TILT*Math.sin(angle), MAX_TILT*Math.cos(angle), 0);
+            }),
+            // Tilt towards each side in turn, for 2 seconds each
+            new Script("sides", (tick, simulation, result) -> {
+                switch (tick / (2*TICK_RATE) % 4) {
+                    case 0 -> result.set(MAX_TILT, 0, 0);
+                    case 1 -> result.set(0, MAX_TILT, 0);
+                    case 2 -> result.set(-MAX_TILT, 0, 0);
+                    default -> result.set(0, -MAX_TILT, 0);
+                }
+            }),
+            new Script("seek", GoalSeekingScript::new)
+    };
+
+    public enum Outcome {
+        WIN, DEATH, TIMEOUT
+    }
+
+    /**
+     * The results of simulating one level with one script
+     */
+    public static class Result {
+        public final String level;
+        public final String script;
+        public final Outcome outcome;
+        public final int ticks;
+        public final long collisionIterations;
+        public final long nanoseconds;
+        public Result(String level, String script, Outcome outcome, int ticks, long collisionIterations, long nanoseconds) {
+            this.level = level;
+            this.script = script;
+            this.outcome = outcome;
+            this.ticks = ticks;
+            this.collisionIterations = collisionIterations;
+            this.nanoseconds = nanoseconds;
+        }
+        public double ticksPerSecond() {
+            return nanoseconds == 0 ? 0 : ticks * 1e9 / nanoseconds;
+        }
+        public String toString() {
+            return String.format("%-24s %-8s %-8s %8d ticks %10d iterations %12.0f ticks/s",
+                    level, script, outcome, ticks, collisionIterations, ticksPerSecond());
+        }
+    }
+
+    /**
+     * Simulates a level until it is won, a ball dies, or maxTicks ticks have passed
+     * @param path the path of the level, relative to assets/levels
+     */
+    public static Result simulate(String path, Script script, int maxTicks) {
+        LevelSimulation simulation = new LevelSimulation();
+        RotationScript rotationScript = script.create();
+        Vector3d rotation = new Vector3d();
+
+        long start = System.nanoTime();
+        simulation.loadLevel(Level.fromFile(path));
+        int tick = 0;
+        while (tick < maxTicks && !simulation.hasWon() && !simulation.hasDied()) {
+            rotationScript.rotation(tick, simulation, rotation);
+            simulation.step(rotation);
+            tick++;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Outcome outcome = simulation.hasWon() ? Outcome.WIN : simulation.hasDied() ? Outcome.DEATH : Outcome.TIMEOUT;
+        return new Result(path, script.name, outcome, tick, simulation.getCollisionIterations(), elapsed);
+    }
+
+    /**
+     * @return the paths (relative to assets/levels) of every level in LEVEL_DIRECTORIES
+     */
+    public static List<String> findLevels() {
+        List<String> paths = new ArrayList<>();
+        for (String directory : LEVEL_DIRECTORIES) {
+            File[] files = new File("assets/levels/" + directory).listFiles((dir, name) -> name.endsWith(".txt"));
+            if (files == null) continue;
+            Arrays.sort(files);
+            for (File file : files) {
+                paths.add(directory + "/" + file.getName());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Simulates every level with every script, in parallel
+     * @return the results, in the order of levels and then scripts
+     */
+    public static List<Result> simulateAll(List<String> levels, Script[] scripts, int maxTicks, ForkJoinPool pool) {
+        List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+        for (String level : levels) {
+            for (Script script : scripts) {
+                tasks.add(pool.submit(() -> simulate(level, script, maxTicks)));
+            }
+        }
+        List<Result> results = new ArrayList<>();
+        for (ForkJoinTask<Result> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    public static void main(String[] args) {
+        int maxTicks = args.length > 0 ? Integer.parseInt(args[0]) : 120*TICK_RATE;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        List<String> levels = findLevels();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        List<Result> results = simulateAll(levels, DEFAULT_SCRIPTS, maxTicks, pool);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        long totalTicks = 0;
+        long totalIterations = 0;
+        int[] outcomes = new int[Outcome.values().length];
+        for (Result result : results) {
+            System.out.println(result);
+            totalTicks += result.ticks;
+            totalIterations += result.collisionIterations;
+            outcomes[result.outcome.ordinal()]++;
+        }
+        System.out.printf("%d levels, %d runs on %d threads in %.2f s: %d ticks (%.0f ticks/s), %d collision iterations%n",
+                levels.size(), results.size(), threads, elapsed / 1e9, totalTicks, totalTicks * 1e9 / elapsed, totalIterations);
+        System.out.printf("%d wins, %d deaths, %d timeouts%n",
+                outcomes[Outcome.WIN.ordinal()], outcomes[Outcome.DEATH.ordinal()], outcomes[Outcome.TIMEOUT.ordinal()]);
+
+        List<String> unwon = new ArrayList<>(levels);
+        for (Result result : results) {
+            if (result.outcome == Outcome.WIN) unwon.remove(result.level);
+        }
+        if (!unwon.isEmpty()) {
+            System.out.printf("Not won by any script (the scripts can't jump gaps or steer balls around each other): %s%n",
+                    String.join(", ", unwon));
+        }
+    }
+}
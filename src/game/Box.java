@@ -21,6 +21,11 @@ public class Box extends GameObject {
         return geometry.position;
     }
     @Override
+    public void getBounds(Vector3d min, Vector3d max) {
+        min.set(Math.min(geometry.x1(), geometry.x2()), Math.min(geometry.y1(), geometry.y2()), Math.min(geometry.z1(), geometry.z2()));
+        max.set(Math.max(geometry.x1(), geometry.x2()), Math.max(geometry.y1(), geometry.y2()), Math.max(geometry.z1(), geometry.z2()));
+    }
+    @Override
     public void reflectLine(Line3d line, Vector3d intersection, Vector3d normal) {
         Geometry.reflectLine(line, intersection, normal, 0.5);
     }
@@ -0,0 +1,140 @@
+package game;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides when updates and renders are due, and sleeps the thread in between them.
+ *
+ * Sleeping is done by parking the thread in short slices until the deadline is closer than the longest a slice
+ * is expected to take (measured as the game runs), and then spinning for the rest, so that frames start on time
+ * without keeping a core busy
+ */
+public class FrameScheduler {
+    // The most updates that are run back to back to catch up after a stall. Any more than this are dropped
+    private static final int MAX_CATCH_UP_UPDATES = 8;
+    // Renders per second while the window is not focused
+    private static final int UNFOCUSED_FPS = 20;
+    // How long each slice of sleep asks to be parked for
+    private static final long PARK_NS = 1_000_000;
+    // The number of measured slices the running statistics are weighted over, so that they follow changes in the system
+    private static final long PARK_HISTORY = 1000;
+
+    private long nsPerUpdate;
+    private long nsPerRender;
+    private long nextUpdate;
+    private long nextRender;
+    private boolean isFocused;
+    private boolean isIconified;
+
+    // Running statistics of how long a slice of sleep actually takes, weighted towards recent slices
+    private double parkMean;
+    private double parkVariance;
+    private long parkCount;
+    private double parkEstimate;
+
+    public FrameScheduler(int updateFps, int renderFps) {
+        setUpdateFps(updateFps);
+        setRenderFps(renderFps);
+        isFocused = true;
+        parkEstimate = 2 * PARK_NS;
+        nextUpdate = System.nanoTime();
+        nextRender = nextUpdate;
+    }
+
+    /**
+     * Sets the amount of update calls done per second
+     */
+    public void setUpdateFps(int fps) {
+        nsPerUpdate = (long)(1e9 / fps);
+    }
+
+    /**
+     * Sets the amount of render calls done per second (while the window is focused)
+     */
+    public void setRenderFps(int fps) {
+        nsPerRender = (long)(1e9 / fps);
+    }
+
+    /**
+     * Sets the state of the window. Renders are slowed down while it is unfocused, and stopped while it is iconified
+     */
+    public void setWindowState(boolean isFocused, boolean isIconified) {
+        this.isFocused = isFocused;
+        this.isIconified = isIconified;
+    }
+
+    private long currentNsPerRender() {
+        return isFocused ? nsPerRender : Math.max(nsPerRender, (long)(1e9 / UNFOCUSED_FPS));
+    }
+
+    /**
+     * @return the number of updates that should be run now (at most MAX_CATCH_UP_UPDATES)
+     */
+    public int takeUpdates(long now) {
+        if (now < nextUpdate) return 0;
+        long due = (now - nextUpdate) / nsPerUpdate + 1;
+        if (due > MAX_CATCH_UP_UPDATES) {
+            // Too far behind to catch up; give up on the missed updates instead of running them all at once
+            nextUpdate = now + nsPerUpdate;
+            return MAX_CATCH_UP_UPDATES;
+        }
+        nextUpdate += due * nsPerUpdate;
+        return (int)due;
+    }
+
+    /**
+     * @return whether a render should be done now
+     */
+    public boolean takeRender(long now) {
+        if (isIconified || now < nextRender) return false;
+        nextRender += currentNsPerRender();
+        // Renders that were missed are not made up for
+        if (nextRender <= now) {
+            nextRender = now + currentNsPerRender();
+        }
+        return true;
+    }
+
+    public long getNsPerUpdate() {
+        return nsPerUpdate;
+    }
+
+    /**
+     * Sleeps until the next update or render is due
+     */
+    public void waitForNextFrame() {
+        waitUntil(isIconified ? nextUpdate : Math.min(nextUpdate, nextRender));
+    }
+
+    /**
+     * Sleeps until the next update is due (for threads that only update)
+     */
+    public void waitForNextUpdate() {
+        waitUntil(nextUpdate);
+    }
+
+    private void waitUntil(long deadline) {
+        long now = System.nanoTime();
+        while (deadline - now > parkEstimate) {
+            LockSupport.parkNanos(PARK_NS);
+            long after = System.nanoTime();
+            recordPark(after - now);
+            now = after;
+        }
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Updates the estimate of how long a slice of sleep takes to be the mean plus one standard deviation
+     */
+    private void recordPark(long duration) {
+        if (parkCount < PARK_HISTORY) parkCount++;
+        double weight = 1.0 / parkCount;
+        double delta = duration - parkMean;
+        parkMean += weight * delta;
+        parkVariance = (1 - weight) * (parkVariance + weight * delta * delta);
+        parkEstimate = parkMean + Math.sqrt(parkVariance);
+    }
+}
@@ -15,11 +15,13 @@ public class Game {
 
     private NanoVGContext nvg;
     private AudioHandler audioHandler;
-    private long nsPerUpdate;
-    private long nsPerRender;
+    private final FrameScheduler scheduler;
+    private boolean vsync;
 
     public Game() {
         isRunning = true;
+        scheduler = new FrameScheduler(144, 144);
+        vsync = true;
     }
 
     /**
@@ -27,7 +29,7 @@ public class Game {
      * @param fps the amount of updates/s
      */
     public void setUpdateFps(int fps) {
-        nsPerUpdate = (long)(1e9 / fps);
+        scheduler.setUpdateFps(fps);
     }
 
     /**
@@ -35,7 +37,17 @@ public class Game {
      * @param fps the amount of renders/s
      */
     public void setRenderFps(int fps) {
-        nsPerRender = (long)(1e9 / fps);
+        scheduler.setRenderFps(fps);
+    }
+
+    /**
+     * Sets whether rendering waits for the monitor's vertical blank. On by default
+     */
+    public void setVsync(boolean value) {
+        vsync = value;
+        if (window != null) {
+            window.setVsync(value);
+        }
     }
 
     /**
@@ -47,6 +59,7 @@ public class Game {
             throw new IllegalStateException("Unable to initialize GLFW");
         }
         window = new Window();
+        window.setVsync(vsync);
         nvg = new NanoVGContext();
         audioHandler = new AudioHandler();
 
@@ -72,7 +85,6 @@ public class Game {
             return;
         }
         setRenderFps(gameScene.getRequestedFpsCap());
-        setUpdateFps((int)Math.round(144 * gameScene.getRequestedGameSpeed()));
     }
     /**
      * Draws everything to the screen
@@ -96,38 +108,28 @@ public class Game {
     }
 
     /**
-     * Calls update() and render() at the specified frequency
+     * Calls update() and render() at the specified frequency, sleeping in between
      */
     private void loop() {
-        long previousTime = System.nanoTime(), currentTime;
-        long updateDelta = 0, renderDelta = 0;
-        setUpdateFps(144);
-        setRenderFps(144);
-
+        long currentTime;
         int updateCount = 0, renderCount = 0;
         long previousFPSCalcTime = System.nanoTime();
 
         while (isRunning) {
             currentTime = System.nanoTime();
 
-            updateDelta += currentTime - previousTime;
-            renderDelta += currentTime - previousTime;
-
             // Call update multiple times if catching up is required
-            while (updateDelta >= nsPerUpdate) {
+            for (int i = scheduler.takeUpdates(currentTime); i > 0 && isRunning; i--) {
                 update();
-                updateDelta -= nsPerUpdate;
                 updateCount++;
             }
+            scheduler.setWindowState(window.isFocused(), window.isIconified());
 
-            if (renderDelta >= nsPerRender) {
+            if (isRunning && scheduler.takeRender(currentTime)) {
                 render();
-                renderDelta = 0;
                 renderCount++;
             }
 
-            previousTime = currentTime;
-
             // Calculate performance stats
             if (currentTime - previousFPSCalcTime >= 1e9) {
                 System.out.printf("Update FPS: %d | Render FPS: %d \n", updateCount, renderCount);
@@ -135,6 +137,10 @@ public class Game {
                 updateCount = 0;
                 renderCount = 0;
             }
+
+            if (isRunning) {
+                scheduler.waitForNextFrame();
+            }
         }
     }
     /**
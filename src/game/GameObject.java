@@ -2,17 +2,20 @@ package game;
 
 import org.joml.Vector4f;
 import shape.Line3d;
-import org.joml.Matrix4f;
 import org.joml.Vector3d;
 
 /**
  * Represents an object that exists in a level
  */
 public abstract class GameObject {
-    protected final Matrix4f worldMatrix;
+    // Objects that move further than this in one tick are drawn at their new position straight away (e.g. when respawning)
+    private static final double MAX_INTERPOLATED_DISTANCE = 1;
+
     private final Vector4f[] color;
+    private final Vector3d previousPosition;
+    private boolean hasPreviousPosition;
     public GameObject() {
-        worldMatrix = new Matrix4f();
+        previousPosition = new Vector3d();
         color = new Vector4f[2];
         color[0] = new Vector4f();
         color[1] = new Vector4f();
@@ -23,16 +26,42 @@ public abstract class GameObject {
     public abstract Vector3d getPosition();
 
     /**
-     * Gets the transformation matrix that represents the object's position in the world
-     * @param globalRotation the rotation of the level this object belongs to
-     * @return the matrix
+     * Remembers the object's current position, so that frames drawn before the next tick can be interpolated from it.
+     * Should be called at the start of every tick in which the object can move
+     */
+    public void savePreviousPosition() {
+        previousPosition.set(getPosition());
+        hasPreviousPosition = true;
+    }
+
+    /**
+     * Gets the position saved by the last call to savePreviousPosition(), for interpolating from.
+     * This is the current position if there isn't one, or if the object has moved too far since
+     */
+    public Vector3d getPreviousPosition() {
+        Vector3d position = getPosition();
+        if (!hasPreviousPosition || previousPosition.distanceSquared(position) > MAX_INTERPOLATED_DISTANCE*MAX_INTERPOLATED_DISTANCE) {
+            return position;
+        }
+        return previousPosition;
+    }
+
+    /**
+     * @return the amount the object's mesh is scaled by when it is rendered
+     */
+    public double getScale() {
+        return 1;
+    }
+
+    /**
+     * Gets an axis-aligned box that contains the object, before the level's rotation is applied.
+     * By default, this is the tile whose corner is at the object's position
+     * @param min set to the box's minimum corner
+     * @param max set to the box's maximum corner
      */
-    public Matrix4f getWorldMatrix(Vector3d globalRotation) {
-        return worldMatrix.identity()
-                .rotateX((float)globalRotation.x)
-                .rotateY((float)globalRotation.y)
-                .rotateZ((float)globalRotation.z)
-                .translate((float)getPosition().x, (float)getPosition().y, (float)getPosition().z);
+    public void getBounds(Vector3d min, Vector3d max) {
+        min.set(getPosition());
+        max.set(getPosition()).add(1, 1, 1);
     }
     public void update() {
 
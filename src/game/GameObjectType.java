@@ -0,0 +1,48 @@
+package game;
+
+import graphics.RenderQueue;
+
+/**
+ * The types of game objects in a level. Every type is rendered with its own mesh
+ */
+public enum GameObjectType {
+    FLOOR(RenderQueue.Layer.STATIC),
+    HOLE(RenderQueue.Layer.STATIC),
+    COVER(RenderQueue.Layer.DYNAMIC),
+    WALL_X(RenderQueue.Layer.STATIC),
+    WALL_X1(RenderQueue.Layer.STATIC),
+    WALL_X2(RenderQueue.Layer.STATIC),
+    WALL_X3(RenderQueue.Layer.STATIC),
+    WALL_Y(RenderQueue.Layer.STATIC),
+    WALL_Y1(RenderQueue.Layer.STATIC),
+    WALL_Y2(RenderQueue.Layer.STATIC),
+    WALL_Y3(RenderQueue.Layer.STATIC),
+    TALL(RenderQueue.Layer.STATIC),
+    BALL(RenderQueue.Layer.TRANSLUCENT),
+    EXPLOSION(RenderQueue.Layer.TRANSLUCENT),
+    SPIKE(RenderQueue.Layer.STATIC);
+
+    private static final GameObjectType[] COLORED_WALLS_X = {WALL_X1, WALL_X2, WALL_X3};
+    private static final GameObjectType[] COLORED_WALLS_Y = {WALL_Y1, WALL_Y2, WALL_Y3};
+
+    public final RenderQueue.Layer layer;
+    GameObjectType(RenderQueue.Layer layer) {
+        this.layer = layer;
+    }
+
+    /**
+     * @param color the color of the walls (1-3)
+     * @return the type of the walls along the x-axis that are removed when the ball of a color reaches its goal
+     */
+    public static GameObjectType coloredWallX(int color) {
+        return COLORED_WALLS_X[color-1];
+    }
+
+    /**
+     * @param color the color of the walls (1-3)
+     * @return the type of the walls along the y-axis that are removed when the ball of a color reaches its goal
+     */
+    public static GameObjectType coloredWallY(int color) {
+        return COLORED_WALLS_Y[color-1];
+    }
+}
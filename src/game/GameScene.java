@@ -384,6 +384,7 @@ public class GameScene extends Scene {
     }
     @Override
     public void update(InputState input) {
+        input.processEvents();
         mousePos.set(input.windowMousePosition);
         for (FrameTimer timer : timers) {
             timer.advanceFrame();
@@ -527,6 +528,7 @@ public class GameScene extends Scene {
 //            music.stop();
 //        }
 //
+        levelScene.setGameSpeed(requestedGameSpeed);
         levelScene.update(input);
     }
     @Override
@@ -0,0 +1,178 @@
+package game;
+
+import org.joml.Vector3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A RotationScript that steers the balls into their holes one at a time, like a player would.
+ *
+ * The path of the ball being steered is found by a breadth-first search over the level's tiles,
+ * avoiding gaps, spikes, tall tiles, walls, and the holes of other balls. The level is tilted towards the center of
+ * the next tile on the path (and against the ball's velocity, so that it slows down as it gets there),
+ * and the tile after that is only chosen once the ball has reached it, so that corners aren't cut.
+ *
+ * This only wins levels where every ball can roll to its hole without help: it doesn't jump gaps,
+ * and the balls that aren't being steered roll along with the one that is (so they can fall off or into the wrong hole).
+ * A new instance must be used for every run
+ */
+public class GoalSeekingScript implements BatchSimulator.RotationScript {
+    // How strongly the level is tilted towards the next tile, and against the ball's velocity
+    private static final double POSITION_GAIN = 5;
+    private static final double VELOCITY_GAIN = 300;
+
+    // How close a ball has to be to the center of a tile to have reached it
+    private static final double REACHED_DISTANCE = 0.2;
+
+    private Level level;
+    private HoleBox[] holes;
+    private int[] distances;
+    private int[] queue;
+
+    // The tile each ball is heading towards, or -1
+    private int[] nextTiles;
+
+    @Override
+    public void rotation(int tick, LevelSimulation simulation, Vector3d result) {
+        result.set(0, 0, 0);
+        if (simulation.getLevel() != level) {
+            load(simulation);
+        }
+
+        ArrayList<Ball> balls = simulation.getBalls();
+        for (int i = 0; i < balls.size(); i++) {
+            Ball ball = balls.get(i);
+            if (ball.hasReachedGoal()) continue;
+
+            Vector3d position = ball.geometry.position;
+            if (nextTiles[i] == -1 || distance(position, nextTiles[i]) < REACHED_DISTANCE) {
+                int tile = nextTiles[i] != -1 ? nextTiles[i] : tileAt(position);
+                nextTiles[i] = tile == -1 ? -1 : nextTile(simulation, ball, tile);
+            }
+            // Steer the first ball that has a path to its hole
+            if (nextTiles[i] == -1) continue;
+
+            double x = POSITION_GAIN*(centerX(nextTiles[i]) - position.x) - VELOCITY_GAIN*ball.velocity.x;
+            double y = POSITION_GAIN*(centerY(nextTiles[i]) - position.y) - VELOCITY_GAIN*ball.velocity.y;
+            // Tilting about the y-axis accelerates balls along x, and tilting about the x-axis accelerates them along -y
+            result.set(-y, x, 0);
+            if (result.length() > BatchSimulator.MAX_TILT) {
+                result.normalize(BatchSimulator.MAX_TILT);
+            }
+            return;
+        }
+    }
+
+    private void load(LevelSimulation simulation) {
+        level = simulation.getLevel();
+        int tiles = level.getRows()*level.getColumns();
+        holes = new HoleBox[tiles];
+        for (GameObject object : simulation.getGameObjects().get(GameObjectType.HOLE)) {
+            HoleBox hole = (HoleBox)object;
+            holes[tileAt(hole.geometry.x1() + 0.5, hole.geometry.y1() + 0.5)] = hole;
+        }
+        distances = new int[tiles];
+        queue = new int[tiles];
+        nextTiles = new int[simulation.getBalls().size()];
+        Arrays.fill(nextTiles, -1);
+    }
+
+    /**
+     * @return the neighbour of a tile that is one step closer to the ball's hole, the tile itself if it is the hole,
+     * or -1 if the hole can't be reached from it
+     */
+    private int nextTile(LevelSimulation simulation, Ball ball, int tile) {
+        findDistances(simulation, ball);
+        if (distances[tile] <= 0) {
+            return distances[tile] == 0 ? tile : -1;
+        }
+        int row = tile / level.getColumns(), column = tile % level.getColumns();
+        for (int direction = 0; direction < 4; direction++) {
+            int neighbour = neighbour(simulation, row, column, direction);
+            if (neighbour != -1 && distances[neighbour] == distances[tile] - 1) {
+                return neighbour;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stores the number of steps from each tile to the ball's hole into distances (-1 if it can't be reached)
+     */
+    private void findDistances(LevelSimulation simulation, Ball ball) {
+        Arrays.fill(distances, -1);
+        int head = 0, tail = 0;
+        for (int tile = 0; tile < holes.length; tile++) {
+            if (holes[tile] != null && !holes[tile].hasReachedGoal() && holes[tile].getHoleColor() == ball.getHoleColor()) {
+                distances[tile] = 0;
+                queue[tail++] = tile;
+            }
+        }
+        while (head < tail) {
+            int tile = queue[head++];
+            int row = tile / level.getColumns(), column = tile % level.getColumns();
+            for (int direction = 0; direction < 4; direction++) {
+                int neighbour = neighbour(simulation, row, column, direction);
+                if (neighbour != -1 && distances[neighbour] == -1 && canRollOn(neighbour)) {
+                    distances[neighbour] = distances[tile] + 1;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param direction 0 to 3 for +x, -x, +y, and -y
+     * @return the tile next to a tile in a direction, or -1 if there is none or there is a wall in the way
+     */
+    private int neighbour(LevelSimulation simulation, int row, int column, int direction) {
+        WallTile wall;
+        switch (direction) {
+            case 0 -> { wall = level.getWallXState(row, column+1); column++; }
+            case 1 -> { wall = level.getWallXState(row, column); column--; }
+            case 2 -> { wall = level.getWallYState(row+1, column); row++; }
+            default -> { wall = level.getWallYState(row, column); row--; }
+        }
+        if (row < 0 || row >= level.getRows() || column < 0 || column >= level.getColumns()) {
+            return -1;
+        }
+        // Colored walls are removed once the ball of their color reaches its goal
+        int color = WallTile.wallColor(wall);
+        boolean isWall = wall == WallTile.WALL || color != 0 && simulation.getGameObjects().containsKey(
+                direction < 2 ? GameObjectType.coloredWallX(color) : GameObjectType.coloredWallY(color)
+        );
+        return isWall ? -1 : row*level.getColumns() + column;
+    }
+
+    /**
+     * @return true if the tile is a floor tile or a filled hole (the ball's own hole is where the search starts from)
+     */
+    private boolean canRollOn(int tile) {
+        if (holes[tile] != null) {
+            return holes[tile].hasReachedGoal();
+        }
+        return level.getFloorState(tile / level.getColumns(), tile % level.getColumns()) == FloorTile.FLOOR;
+    }
+
+    private int tileAt(Vector3d position) {
+        return tileAt(position.x, position.y);
+    }
+    private int tileAt(double x, double y) {
+        int column = (int)Math.floor(x - level.getPosX(0));
+        int row = (int)Math.floor(y - level.getPosY(0));
+        if (row < 0 || row >= level.getRows() || column < 0 || column >= level.getColumns()) {
+            return -1;
+        }
+        return row*level.getColumns() + column;
+    }
+    private double centerX(int tile) {
+        return level.getPosX(tile % level.getColumns()) + 0.5;
+    }
+    private double centerY(int tile) {
+        return level.getPosY(tile / level.getColumns()) + 0.5;
+    }
+    private double distance(Vector3d position, int tile) {
+        return Math.hypot(centerX(tile) - position.x, centerY(tile) - position.y);
+    }
+}
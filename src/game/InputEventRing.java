@@ -0,0 +1,124 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size queue of input events, passed from the thread that receives them to the thread that handles them
+ * without locking or allocating.
+ *
+ * Events are stored as primitives in preallocated arrays. Only one thread may add events, and only one thread may
+ * read them. If the ring is full, new events are dropped
+ */
+public class InputEventRing {
+    public static final int KEY = 0;
+    public static final int MOUSE_BUTTON = 1;
+    public static final int SCROLL = 2;
+    public static final int CURSOR = 3;
+    // The size of the framebuffer, which the cursor position is relative to
+    public static final int RESIZE = 4;
+
+    private final int mask;
+    private final int[] types;
+    // The key or mouse button, and the GLFW action (e.g. GLFW_PRESS)
+    private final int[] codes;
+    private final int[] actions;
+    // The cursor position, the scroll offsets, or the framebuffer size
+    private final double[] xs;
+    private final double[] ys;
+    // glfwGetTime() when the event was received
+    private final double[] times;
+
+    // The number of events ever added, and ever removed
+    private final AtomicLong writeIndex;
+    private final AtomicLong readIndex;
+
+    // The oldest event, as of the last call to peek()
+    private int type;
+    private int code;
+    private int action;
+    private double x;
+    private double y;
+    private double time;
+
+    /**
+     * @param capacity the most events held at once (rounded up to a power of 2)
+     */
+    public InputEventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        types = new int[size];
+        codes = new int[size];
+        actions = new int[size];
+        xs = new double[size];
+        ys = new double[size];
+        times = new double[size];
+        writeIndex = new AtomicLong();
+        readIndex = new AtomicLong();
+    }
+
+    /**
+     * Adds an event. Only used by the thread that receives input
+     * @return false if the ring was full and the event was dropped
+     */
+    public boolean add(int type, int code, int action, double x, double y, double time) {
+        long index = writeIndex.get();
+        if (index - readIndex.get() > mask) return false;
+        int slot = (int)index & mask;
+        types[slot] = type;
+        codes[slot] = code;
+        actions[slot] = action;
+        xs[slot] = x;
+        ys[slot] = y;
+        times[slot] = time;
+        // Makes the slot's contents visible to the reader before the index
+        writeIndex.lazySet(index + 1);
+        return true;
+    }
+
+    /**
+     * Reads the oldest event without removing it; its fields are then returned by the getters below.
+     * Only used by the thread that handles input
+     * @return false if there are no events
+     */
+    public boolean peek() {
+        long index = readIndex.get();
+        if (index == writeIndex.get()) return false;
+        int slot = (int)index & mask;
+        type = types[slot];
+        code = codes[slot];
+        action = actions[slot];
+        x = xs[slot];
+        y = ys[slot];
+        time = times[slot];
+        return true;
+    }
+
+    /**
+     * Removes the oldest event, so that its slot can be reused. Only used by the thread that handles input
+     */
+    public void remove() {
+        long index = readIndex.get();
+        if (index != writeIndex.get()) {
+            readIndex.lazySet(index + 1);
+        }
+    }
+
+    public int getType() {
+        return type;
+    }
+    public int getCode() {
+        return code;
+    }
+    public int getAction() {
+        return action;
+    }
+    public double getX() {
+        return x;
+    }
+    public double getY() {
+        return y;
+    }
+    public double getTime() {
+        return time;
+    }
+}
@@ -2,17 +2,24 @@ package game;
 
 import org.joml.Vector2d;
 
-import java.util.HashSet;
-
 import static org.lwjgl.glfw.GLFW.*;
 
 /**
- * Stores the current state of user input
+ * Stores the current state of user input.
+ *
+ * Input is received as events (see InputEventRing), which are applied at the start of every update by processEvents()
  */
 public class InputState {
     public static final int SCROLLWHEEL_UP = 727272727;
     public static final int SCROLLWHEEL_DOWN = 727272728;
     public static final int MOUSE_BUTTON_LEFT = 727272729;
+    // The most distinct keys that can be pressed in one update
+    private static final int MAX_PRESSED_KEYS = 32;
+
+    /**
+     * The events received since the last update. Filled by the window's callbacks
+     */
+    public final InputEventRing events;
 
     /**
      * The mouse position, normalized to [-1, 1]
@@ -23,29 +30,79 @@ public class InputState {
      * The actual window coordinates of the mouse
      */
     public final Vector2d windowMousePosition;
-    private final HashSet<Integer> pressedKeys;
+    // The keys pressed during the current update
+    private final int[] pressedKeys;
+    private int pressedKeyCount;
+    private int framebufferWidth;
+    private int framebufferHeight;
+
+    /**
+     * Marks all keys as not pressed, then applies the events received up to now.
+     * A key is only pressed once per update: if it is pressed again, that event and every event after it
+     * are left for the next update, so that repeated presses (e.g. scrolling several levels) aren't merged into one.
+     * Should be called at the start of every update
+     */
+    public void processEvents() {
+        pressedKeyCount = 0;
+        // Events that arrive while this runs (if input is received on another thread) are left for the next update
+        double now = glfwGetTime();
+        while (events.peek() && events.getTime() <= now) {
+            int key = pressedKey();
+            if (key != 0 && isKeyPressed(key)) break;
+            switch (events.getType()) {
+                case InputEventRing.CURSOR -> {
+                    int minDimension = Math.min(framebufferWidth, framebufferHeight);
+                    mousePosition.x = (events.getX() - (framebufferWidth - minDimension)/2.0) / minDimension;
+                    mousePosition.y = (events.getY() - (framebufferHeight - minDimension)/2.0) / minDimension;
+                    windowMousePosition.set(events.getX(), events.getY());
+                }
+                case InputEventRing.RESIZE -> {
+                    framebufferWidth = (int)events.getX();
+                    framebufferHeight = (int)events.getY();
+                }
+                default -> {
+                    if (key != 0) addPressedKey(key);
+                }
+            }
+            events.remove();
+        }
+    }
 
     /**
-     * Marks all keys as not pressed. Should be called at the start of every frame
+     * @return the key pressed by the event last read from events, or 0 if it doesn't press one
      */
-    public void clearPressedKeys() {
-        pressedKeys.clear();
+    private int pressedKey() {
+        return switch (events.getType()) {
+            case InputEventRing.KEY -> events.getAction() == GLFW_PRESS ? events.getCode() : 0;
+            case InputEventRing.MOUSE_BUTTON ->
+                    events.getAction() == GLFW_PRESS && events.getCode() == GLFW_MOUSE_BUTTON_LEFT ? MOUSE_BUTTON_LEFT : 0;
+            case InputEventRing.SCROLL -> events.getY() > 0 ? SCROLLWHEEL_UP : events.getY() < 0 ? SCROLLWHEEL_DOWN : 0;
+            default -> 0;
+        };
     }
 
     /**
-     * Marks a key as pressed for the current frame
+     * Marks a key as pressed for the current update
      * @param key the key
      */
-    public void addPressedKey(int key) {
-        pressedKeys.add(key);
+    private void addPressedKey(int key) {
+        if (pressedKeyCount < MAX_PRESSED_KEYS) {
+            pressedKeys[pressedKeyCount++] = key;
+        }
     }
     public boolean isKeyPressed(int key) {
-        return pressedKeys.contains(key);
+        for (int i = 0; i < pressedKeyCount; i++) {
+            if (pressedKeys[i] == key) return true;
+        }
+        return false;
     }
-    public InputState() {
+    public InputState(int framebufferWidth, int framebufferHeight) {
+        events = new InputEventRing(1024);
         mousePosition = new Vector2d();
         windowMousePosition = new Vector2d();
-        pressedKeys = new HashSet<>();
+        pressedKeys = new int[MAX_PRESSED_KEYS];
+        this.framebufferWidth = framebufferWidth;
+        this.framebufferHeight = framebufferHeight;
     }
     public boolean isNextLevelPressed() {
         return isKeyPressed(SCROLLWHEEL_DOWN);
@@ -1,102 +1,123 @@
 package game;
 
 import audio.AudioHandler;
-import collision.CollisionHandler;
 import graphics.*;
+import mesh.MeshBuilder;
 import mesh.Quad;
-import org.joml.Matrix3f;
-import shape.Line3d;
 import shape.Line3f;
-import shape.Sphere;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
 import org.joml.Vector3d;
 import org.joml.Vector3f;
-import org.lwjgl.system.MemoryUtil;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryStack;
 import util.Deletable;
 
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
+import static game.LevelSimulation.FLOOR_TILE_HEIGHT;
+import static game.LevelSimulation.WALL_HEIGHT;
 import static math.MathUtil.cutMaxMin;
+import static math.MathUtil.lerpAngle;
 import static mesh.MeshGeometry.*;
 import static org.lwjgl.opengl.GL30.*;
 
+/**
+ * Renders a LevelSimulation, which runs on its own thread (see SimulationThread), and plays its sounds.
+ * Everything drawn comes from the most recent LevelSnapshot the simulation published
+ */
 public class LevelScene extends Scene {
+    // The width (in tiles) of the square chunks that static tiles are baked into, so that they can be culled
+    private static final int CHUNK_SIZE = 8;
+    // Objects that would cover fewer pixels than this on the screen are not drawn (unless they might cast a shadow)
+    private static final float MIN_SCREEN_SIZE = 1;
+
+    /**
+     * The baked mesh of the static tiles of one type within one chunk, along with a box that contains them
+     */
+    private static class StaticChunk {
+        private MeshBuilder builder;
+        private GameObjectMesh mesh;
+        private final Vector3d min;
+        private final Vector3d max;
+        private StaticChunk() {
+            builder = new MeshBuilder();
+            min = new Vector3d(Double.POSITIVE_INFINITY);
+            max = new Vector3d(Double.NEGATIVE_INFINITY);
+        }
+    }
+
+    private final SimulationThread simulationThread;
+    // The snapshot being rendered. Replaced with the latest one at the start of every update and render
+    private LevelSnapshot snapshot;
+    // The static objects that the chunks in staticMeshes were baked from
+    private LevelSnapshot.StaticObjects bakedStaticObjects;
+    // The level most recently loaded, and the number of levels loaded so far (the simulation may not have caught up to either yet)
     private Level level;
+    private int generation;
+    private double gameSpeed;
+
+    private final EnumMap<GameObjectType, GameObjectMesh> gameObjectMeshes;
+    private final EnumMap<GameObjectType, MeshBuilder> staticMeshTemplates;
+    private final EnumMap<GameObjectType, ArrayList<StaticChunk>> staticMeshes;
+    private final RenderQueue renderQueue;
 
-    private final GameObjectMesh floorMesh;
-    private final GameObjectMesh holeMesh;
-    private final GameObjectMesh holeCoverMesh;
-    private final GameObjectMesh wallXMesh;
-    private final GameObjectMesh wallXMeshThinner;
-    private final GameObjectMesh wallYMesh;
-    private final GameObjectMesh wallYMeshThinner;
-    private final GameObjectMesh tallTileMesh;
-    private final GameObjectMesh ballMesh;
-    private final GameObjectMesh spikeMesh;
-    private final HashMap<String, GameObjectMesh> gameObjectMeshes;
-
-    private final ShaderProgram colorShader;
-    private final ShaderProgram colorNormalsShader;
+    private final ShaderProgram normalsAndColorsShader;
     private final ShaderProgram outlineShader;
     private final ShaderProgram levelShader;
     private final ShaderProgram depthShader;
+    private final ShaderProgram depthPrepassShader;
     private final ShaderProgram textureShader;
     private final EmptyFbo edgeSourceFbo;
-    private final EmptyFbo colorSourceFbo;
+    // The normals, colors and depths of the objects that don't move, kept until the view of the level changes
+    private final EmptyFbo staticEdgeSourceFbo;
+    private final Matrix4f staticEdgeSourceMatrix;
+    // Transform positions in the level (before its rotation) to clip space, for the camera and for the light
+    private final Matrix4f cameraMatrix;
+    private final Matrix4f lightMatrix;
+    private final FrustumIntersection cameraFrustum;
+    private final FrustumIntersection lightFrustum;
+    private final Vector3d boundsMin;
+    private final Vector3d boundsMax;
+    private final Matrix4f worldMatrix;
+    private int staticEdgeSourceRevision;
+    private boolean isStaticEdgeSourceValid;
     private final ShadowMap shadowMap;
-    private final Vector3d rotation;
-
-    private final ArrayList<Box> floorTiles;
-    private final ArrayList<HoleBox> holeTiles;
-    private final ArrayList<HoleBoxCover> coverTiles;
-    private final ArrayList<Box> wallXTiles;
-    private final ArrayList<Box>[] coloredWallsX;
-    private final ArrayList<Box> wallYTiles;
-    private final ArrayList<Box>[] coloredWallsY;
-    private final ArrayList<Box> tallTiles;
-    private final ArrayList<Ball> balls;
-    private final ArrayList<Ball> ballExplosions;
-    private final ArrayList<Box> spikeTiles;
-    private final HashMap<String, ArrayList<? extends GameObject>> gameObjects;
-    private final CollisionHandler collisionHandler;
-    private final double floorTileHeight = 0.5;
-    private final double wallHeight = 0.75;
-
-    private boolean hasDied;
-    private boolean hasWon;
-    private boolean isPaused;
-    private boolean inPreviewMode;
-    private boolean inMainMenuMode;
-    private final ContinuousFrameTimer previewRotation;
-    private final ContinuousFrameTimer mainMenuVelocity;
+    // The rotation interpolated between the snapshot's previous and current rotation for rendering
+    private final Vector3d renderRotation;
+    private final Matrix4f rotationMatrix;
 
+    // A copy of the simulation's stopwatch, as of the latest snapshot of the current level
     public final FrameTimer stopwatch;
 
     private int windowWidth;
     private int windowHeight;
 
     private final AudioHandler audioHandler;
-    private final Matrix3f rotationMatrix;
 
     public LevelScene(int windowWidth, int windowHeight, AudioHandler audioHandler) {
         super();
         this.windowWidth = windowWidth;
         this.windowHeight = windowHeight;
         this.audioHandler = audioHandler;
-        rotationMatrix = new Matrix3f();
-        floorMesh = axisAlignedBoxMesh(
-                new Line3f(new Vector3f(0, 0, 0), new Vector3f(1, 1, (float)floorTileHeight)),
-                new Vector3f(0f, 0f, 0f)
-        );
-        holeMesh = holeTileMesh(
+        simulationThread = new SimulationThread(audioHandler);
+        snapshot = simulationThread.acquireSnapshot();
+        gameSpeed = 1;
+        stopwatch = new FrameTimer(Integer.MAX_VALUE-1);
+        // Every type of moving game object gets its own mesh (even if its geometry is the same as another's),
+        // since each mesh holds the instances of the objects it renders
+        gameObjectMeshes = new EnumMap<>(GameObjectType.class);
+        gameObjectMeshes.put(GameObjectType.HOLE, holeTileMesh(
                 new Vector3f(0f, 0f, 0f),
                 new Vector3f(1, 1, 0),
                 20,
                 0.4
-        );
-        holeCoverMesh = quadMesh(
+        ));
+        gameObjectMeshes.put(GameObjectType.COVER, quadMesh(
                 new Quad(
                         new Vector3f(0, 0, 0),
                         new Vector3f(1, 0, 0),
@@ -104,103 +125,77 @@ public class LevelScene extends Scene {
                         new Vector3f(0, 1, 0)
                 ),
                 new Vector3f(0, 0, 0)
-        );
-        wallXMesh = axisAlignedBoxMesh(
-                new Line3f(new Vector3f(0, 0, 0), new Vector3f(0.1f, 1.1f, (float)(floorTileHeight+wallHeight))),
+        ));
+        gameObjectMeshes.put(GameObjectType.BALL, generateGeodesicPolyhedronMesh(3, new Vector3f(0f, 1f, 0f)));
+        gameObjectMeshes.put(GameObjectType.EXPLOSION, generateGeodesicPolyhedronMesh(3, new Vector3f(0f, 1f, 0f)));
+
+        // Tiles that never move relative to the level (and share a color) are baked into one mesh per type
+        // when a level is loaded; these are the meshes of a single tile of each type
+        staticMeshTemplates = new EnumMap<>(GameObjectType.class);
+        staticMeshTemplates.put(GameObjectType.FLOOR, axisAlignedBox(
+                new Line3f(new Vector3f(0, 0, 0), new Vector3f(1, 1, (float)FLOOR_TILE_HEIGHT)),
                 new Vector3f(0f, 0f, 0f)
-        );
-        wallXMeshThinner = axisAlignedBoxMesh(
-                new Line3f(new Vector3f(0.001f, 0.001f, 0), new Vector3f(0.098f, 1.098f, (float)(floorTileHeight+wallHeight)-0.01f)),
+        ));
+        staticMeshTemplates.put(GameObjectType.WALL_X, axisAlignedBox(
+                new Line3f(new Vector3f(0, 0, 0), new Vector3f(0.1f, 1.1f, (float)(FLOOR_TILE_HEIGHT+WALL_HEIGHT))),
                 new Vector3f(0f, 0f, 0f)
-        );
-        wallYMesh = axisAlignedBoxMesh(
-                new Line3f(new Vector3f(0, 0, 0), new Vector3f(1.1f, 0.1f, (float)(floorTileHeight+wallHeight))),
+        ));
+        staticMeshTemplates.put(GameObjectType.WALL_Y, axisAlignedBox(
+                new Line3f(new Vector3f(0, 0, 0), new Vector3f(1.1f, 0.1f, (float)(FLOOR_TILE_HEIGHT+WALL_HEIGHT))),
+                new Vector3f(0f, 0f, 0f)
+        ));
+        MeshBuilder wallXThinner = axisAlignedBox(
+                new Line3f(new Vector3f(0.001f, 0.001f, 0), new Vector3f(0.098f, 1.098f, (float)(FLOOR_TILE_HEIGHT+WALL_HEIGHT)-0.01f)),
                 new Vector3f(0f, 0f, 0f)
         );
-        wallYMeshThinner = axisAlignedBoxMesh(
-                new Line3f(new Vector3f(0.001f, 0.001f, 0), new Vector3f(1.098f, 0.098f, (float)(floorTileHeight+wallHeight)-0.01f)),
+        MeshBuilder wallYThinner = axisAlignedBox(
+                new Line3f(new Vector3f(0.001f, 0.001f, 0), new Vector3f(1.098f, 0.098f, (float)(FLOOR_TILE_HEIGHT+WALL_HEIGHT)-0.01f)),
                 new Vector3f(0f, 0f, 0f)
         );
-        tallTileMesh = axisAlignedBoxMesh(
-                new Line3f(new Vector3f(0, 0, 0), new Vector3f(1, 1, (float)(floorTileHeight+wallHeight))),
+        // Colored walls get a batch per color, so that they can be removed once their ball reaches its goal
+        for (int i = 1; i <= 3; i++) {
+            staticMeshTemplates.put(GameObjectType.coloredWallX(i), wallXThinner);
+            staticMeshTemplates.put(GameObjectType.coloredWallY(i), wallYThinner);
+        }
+        staticMeshTemplates.put(GameObjectType.TALL, axisAlignedBox(
+                new Line3f(new Vector3f(0, 0, 0), new Vector3f(1, 1, (float)(FLOOR_TILE_HEIGHT+WALL_HEIGHT))),
                 new Vector3f(0, 0, 0)
-        );
-        ballMesh = generateGeodesicPolyhedronMesh(3, new Vector3f(0f, 1f, 0f));
-        spikeMesh = spikeTileMesh(
-                new Line3f(new Vector3f(0, 0, 0), new Vector3f(1, 1, (float)floorTileHeight)),
+        ));
+        staticMeshTemplates.put(GameObjectType.SPIKE, spikeTile(
+                new Line3f(new Vector3f(0, 0, 0), new Vector3f(1, 1, (float)FLOOR_TILE_HEIGHT)),
                 new Vector3f(0f, 0f, 0f),
                 0.75f, 3
-        );
-        gameObjectMeshes = new HashMap<>();
-        gameObjectMeshes.put("floor", floorMesh);
-        gameObjectMeshes.put("hole", holeMesh);
-        gameObjectMeshes.put("cover", holeCoverMesh);
-        gameObjectMeshes.put("wallX", wallXMesh);
-        gameObjectMeshes.put("wallX1", wallXMeshThinner);
-        gameObjectMeshes.put("wallX2", wallXMeshThinner);
-        gameObjectMeshes.put("wallX3", wallXMeshThinner);
-        gameObjectMeshes.put("wallY", wallYMesh);
-        gameObjectMeshes.put("wallY1", wallYMeshThinner);
-        gameObjectMeshes.put("wallY2", wallYMeshThinner);
-        gameObjectMeshes.put("wallY3", wallYMeshThinner);
-        gameObjectMeshes.put("tall", tallTileMesh);
-        gameObjectMeshes.put("ball", ballMesh);
-        gameObjectMeshes.put("explosion", ballMesh);
-        gameObjectMeshes.put("spike", spikeMesh);
-
-        colorShader = ShaderProgram.fromFile("color.glsl");
-        colorNormalsShader = ShaderProgram.fromFile("color_normals.glsl");
+        ));
+        staticMeshes = new EnumMap<>(GameObjectType.class);
+        renderQueue = new RenderQueue();
+
+        normalsAndColorsShader = ShaderProgram.fromFile("normals_and_colors.glsl");
         outlineShader = ShaderProgram.fromFile("outline.glsl");
         levelShader = ShaderProgram.fromFile("sobel_filter_and_shadows.glsl");
         depthShader = ShaderProgram.fromFile("depth.glsl");
+        depthPrepassShader = ShaderProgram.fromFile("depth_prepass.glsl");
         textureShader = ShaderProgram.fromFile("texture.glsl");
 
-        rotation = new Vector3d();
-
-        floorTiles = new ArrayList<>();
-        holeTiles = new ArrayList<>();
-        coverTiles = new ArrayList<>();
-        wallXTiles = new ArrayList<>();
-        wallYTiles = new ArrayList<>();
-        tallTiles = new ArrayList<>();
-        balls = new ArrayList<>();
-        ballExplosions = new ArrayList<>();
-        coloredWallsX = new ArrayList[] { new ArrayList<Box>(), new ArrayList<Box>(), new ArrayList<Box>() };
-        coloredWallsY = new ArrayList[] { new ArrayList<Box>(), new ArrayList<Box>(), new ArrayList<Box>() };
-        spikeTiles = new ArrayList<>();
-
-        gameObjects = new HashMap<>();
-        gameObjects.put("floor", floorTiles);
-        gameObjects.put("hole", holeTiles);
-        gameObjects.put("cover", coverTiles);
-        gameObjects.put("wallX", wallXTiles);
-        gameObjects.put("wallX1", coloredWallsX[0]);
-        gameObjects.put("wallX2", coloredWallsX[1]);
-        gameObjects.put("wallX3", coloredWallsX[2]);
-        gameObjects.put("wallY", wallYTiles);
-        gameObjects.put("wallY1", coloredWallsY[0]);
-        gameObjects.put("wallY2", coloredWallsY[1]);
-        gameObjects.put("wallY3", coloredWallsY[2]);
-        gameObjects.put("tall", tallTiles);
-        gameObjects.put("ball", balls);
-        gameObjects.put("explosion", ballExplosions);
-        gameObjects.put("spike", spikeTiles);
+        renderRotation = new Vector3d();
+        rotationMatrix = new Matrix4f();
 
         camera.position.z = 6;
 
-        edgeSourceFbo = new EmptyFbo(windowWidth, windowHeight);
-        colorSourceFbo = new EmptyFbo(windowWidth, windowHeight);
+        // Normals in color attachment 0, colors in color attachment 1
+        edgeSourceFbo = new EmptyFbo(windowWidth, windowHeight, 2);
+        staticEdgeSourceFbo = new EmptyFbo(windowWidth, windowHeight, 2);
+        staticEdgeSourceMatrix = new Matrix4f();
+        cameraMatrix = new Matrix4f();
+        lightMatrix = new Matrix4f();
+        cameraFrustum = new FrustumIntersection();
+        lightFrustum = new FrustumIntersection();
+        boundsMin = new Vector3d();
+        boundsMax = new Vector3d();
+        worldMatrix = new Matrix4f();
         handleWindowResize(windowWidth, windowHeight);
         shadowMap = new ShadowMap(2048, 2048, 3.5f, 0.1f, 10f);
 
-        hasDied = false;
-        hasWon = false;
-        collisionHandler = new CollisionHandler();
-
-        previewRotation = new ContinuousFrameTimer(576);
-        mainMenuVelocity = new ContinuousFrameTimer(576);
-
-        stopwatch = new FrameTimer(Integer.MAX_VALUE-1);
+        simulationThread.start();
     }
 
     /**
@@ -217,54 +212,46 @@ public class LevelScene extends Scene {
      * Updates the camera and light position
      */
     public void enterPreviewMode() {
-        previewRotation.start();
-        inMainMenuMode = false;
-        inPreviewMode = true;
+        simulationThread.enterPreviewMode();
         camera.rotation.x = -(float)Math.PI/4f;
         updatePreviewCameraDistance();
         shadowMap.setSourcePosition(new Vector3f(-2, 2, 4));
         shadowMap.updateLightSpaceMatrix();
-        rotation.set(0, 0, 0);
     }
 
     /**
      * Undoes everything done by enterPreviewMode() and enterMainMenuMode()
      */
     public void enterLevelMode() {
-        previewRotation.stop();
-        inPreviewMode = false;
-        inMainMenuMode = false;
+        simulationThread.enterLevelMode();
         camera.position.set(0, 0, cameraDistanceFactor());
         camera.rotation.x = 0;
         shadowMap.setSourcePosition(new Vector3f(0, 0, 4));
         shadowMap.updateLightSpaceMatrix();
-        rotation.z = 0;
     }
 
     /**
      * Sets the camera and light position to that used in the main menu screen
      */
     public void enterMainMenuMode() {
-        previewRotation.stop();
-        rotation.z = 0;
-        inPreviewMode = false;
-        inMainMenuMode = true;
+        simulationThread.enterMainMenuMode();
         camera.rotation.x = 0;
         camera.position.set(0.5, 0, 5);
         shadowMap.setSourcePosition(new Vector3f(2, 2, 4));
         shadowMap.updateLightSpaceMatrix();
     }
     public boolean hasDied() {
-        return hasDied;
+        return snapshot.generation == generation && snapshot.hasDied;
     }
     public boolean hasWon() {
-        return hasWon;
+        return snapshot.generation == generation && snapshot.hasWon;
     }
     @Override
     public void handleWindowResize(int width, int height) {
         super.handleWindowResize(width, height);
         edgeSourceFbo.resize(width, height);
-        colorSourceFbo.resize(width, height);
+        staticEdgeSourceFbo.resize(width, height);
+        isStaticEdgeSourceValid = false;
         windowWidth = width;
         windowHeight = height;
     }
@@ -273,280 +260,154 @@ public class LevelScene extends Scene {
         return level.getStarLevel(stopwatch.getFrame());
     }
 
-    public void setupCollisions(Ball ball) {
-        collisionHandler.reset();
-        collisionHandler.setBall(ball);
-        for (Box box : wallXTiles) collisionHandler.addBoxFloorColliders(box);
-        for (Box box : wallYTiles) collisionHandler.addBoxFloorColliders(box);
-        for (int i = 0; i < coloredWallsX.length; i++) {
-            if (gameObjects.containsKey("wallX" + (i+1))) {
-                for (Box box : coloredWallsX[i]) collisionHandler.addBoxFloorColliders(box);
-            }
-        }
-        for (int i = 0; i < coloredWallsY.length; i++) {
-            if (gameObjects.containsKey("wallY" + (i+1))) {
-                for (Box box : coloredWallsY[i]) collisionHandler.addBoxFloorColliders(box);
-            }
-        }
-        for (Box box : floorTiles) collisionHandler.addBoxFloorColliders(box);
-        for (Box box : tallTiles) collisionHandler.addBoxFloorColliders(box);
-        for (HoleBox box : holeTiles) collisionHandler.addHoleBoxColliders(box);
-        for (Box box : spikeTiles) collisionHandler.addSpikeColliders(box);
-        collisionHandler.addFallDeathTrigger();
-    }
-
     /**
-     * Update balls and handle their collisions
+     * Sets how fast the simulation runs. Only the number of physics steps per update changes
+     * @param value the number of physics steps per update (1 is normal speed)
      */
-    public void updateBalls() {
-        int ballsWon = 0;
-
-        for (int i = balls.size()-1; i >= 0; i--) {
-            if (balls.get(i).isInExplosionAnimation()) {
-                ballExplosions.add(balls.get(i));
-                balls.remove(i);
-            }
-        }
-
-        for (Ball ball : ballExplosions) {
-            ball.velocity.z = 0;
-            ball.update(rotationMatrix);
-            if (ball.isDead()) {
-                hasDied = true;
-            }
-            setupCollisions(ball);
-            collisionHandler.processCollisions();
-        }
-
-        for (Ball ball : balls) {
-            if (ball.isDead()) {
-                hasDied = true;
-                continue;
-            }
-            if (ball.hasReachedGoal()) {
-                ballsWon++;
-                ball.queueSplash();
-                ball.update(rotationMatrix);
-                // Hide the ball if it has reached its goal
-                ball.geometry.position.set(0, 0, 10000);
-
-                // Remove colored walls
-                gameObjects.remove("wallX" + ball.getHoleColor());
-                gameObjects.remove("wallY" + ball.getHoleColor());
-                continue;
-            }
-            // Fade the ball out when it falls
-            ball.getColor(0).w = (float)cutMaxMin(1.25 + ball.geometry.position.z, 0, 1);
-
-            // Accelerate the ball based on the level's rotation
-            ball.velocity.x += Math.sin(rotation.y * 0.0004);
-            ball.velocity.x = cutMaxMin(ball.velocity.x, -0.04f, 0.04f);
-            ball.velocity.y += -Math.sin(rotation.x * 0.0004);
-            ball.velocity.y = cutMaxMin(ball.velocity.y, -0.04f, 0.04f);
-
-            // Apply gravity
-            ball.velocity.z -= 0.00045;
-
-            // Handle collisions
-            setupCollisions(ball);
-            for (Ball collisionBall : balls) {
-                if (ball == collisionBall) continue;
-                collisionHandler.addBallColliders(collisionBall);
-            }
-            collisionHandler.processCollisions();
-
-            ball.update(rotationMatrix);
-        }
-
-
-        if (ballsWon == level.getNumberBalls()) {
-            hasWon = true;
+    public void setGameSpeed(double value) {
+        // Called every update, so the simulation is only told when the speed actually changes
+        if (value != gameSpeed) {
+            gameSpeed = value;
+            simulationThread.setGameSpeed(value);
         }
     }
+
     @Override
     public void update(InputState input) {
         audioHandler.listener.updatePosition(camera);
-        if (inMainMenuMode) {
-            if (isPaused) {
-                return;
-            }
-            // Continuously spawn balls that move downwards
-            mainMenuVelocity.update();
-            mainMenuVelocity.start();
-            for (Ball ball : balls) {
-                if (ball.isDead()) {
-                    ball.setIsDead(false);
-                    ball.velocity.set(Math.random()*0.01, Math.random()*0.01, 0);
-                    ball.geometry.position.set(-0.5 - Math.random(), 3.35, 0.35);
-                }
-
-                ball.velocity.x -= 0.00004 * Math.sin(2*Math.PI*mainMenuVelocity.percentage());
-                ball.velocity.y -= 0.00005;
-            }
-            updateBalls();
-            return;
-        }
-        if (inPreviewMode) {
-            // Continuously rotate the level
-            rotation.z = previewRotation.percentage() * 2 * Math.PI;
-            previewRotation.update();
-            return;
-        }
-
-        // Calculate rotation based on mouse position
-        rotation.x = (cutMaxMin(input.mousePosition.y*1.2 - 0.1, 0, 1)-0.5) * Math.PI/3;
-        rotation.y = (cutMaxMin(input.mousePosition.x*1.2 - 0.1, 0, 1)-0.5) * Math.PI/3;
-        if (rotation.length() > Math.PI/6) {
-            rotation.normalize(Math.PI/6);
-        }
-
-        rotationMatrix.identity()
-                .rotateX((float)rotation.x)
-                .rotateY((float)rotation.y)
-                .rotateZ((float)rotation.z);
-
-        if (isPaused) {
-            return;
-        }
-        if (!hasWon) {
-            stopwatch.advanceFrame();
-        }
-
-        updateBalls();
-
-        for (HoleBox hole : holeTiles) {
-            hole.update();
+        simulationThread.checkFailure();
+        simulationThread.setMousePosition(input.mousePosition.x, input.mousePosition.y);
+        snapshot = simulationThread.acquireSnapshot();
+        if (snapshot.generation == generation) {
+            stopwatch.start(snapshot.stopwatchFrame);
         }
     }
 
     /**
-     * Render all game objects. Meant for use with the normal coloring shader
+     * Uploads the world matrix and colors of every visible game object in the snapshot to the instances of its mesh,
+     * and queues a draw call for every mesh with visible instances.
+     * The level's rotation is only turned into a matrix once, and every object's world matrix is derived from it.
+     * Static tiles are already in place in their baked chunks, so each visible chunk only has one instance (the level's rotation)
+     * @param alpha how far the frame is between the snapshot's update and the next; moving objects and the rotation are interpolated by this
      */
-    private void renderGameNormalsInstanced(ShaderProgram shader) {
-        for (Map.Entry<String, ArrayList<? extends GameObject>> entry : gameObjects.entrySet()) {
-            if (entry.getValue().isEmpty()) continue;
-            setViewMatrices(shader, entry.getValue());
-            setTransparencies(shader, entry.getValue());
-            gameObjectMeshes.get(entry.getKey()).renderInstanced(entry.getValue().size());
-        }
-    }
-
-    private void renderGameNormals(ShaderProgram shader) {
-        for (Map.Entry<String, ArrayList<? extends GameObject>> entry : gameObjects.entrySet()) {
-            for (GameObject object : entry.getValue()) {
-                shader.setUniform("viewMatrix", camera.getViewMatrix(object.getWorldMatrix(rotation)));
-                shader.setUniform("transparency", object.getColor(0).w);
-                gameObjectMeshes.get(entry.getKey()).render();
+    private void updateInstances(double alpha) {
+        renderRotation.set(
+                lerpAngle(snapshot.previousRotation.x, snapshot.rotation.x, alpha),
+                lerpAngle(snapshot.previousRotation.y, snapshot.rotation.y, alpha),
+                lerpAngle(snapshot.previousRotation.z, snapshot.rotation.z, alpha)
+        );
+        rotationMatrix.identity()
+                .rotateX((float)renderRotation.x)
+                .rotateY((float)renderRotation.y)
+                .rotateZ((float)renderRotation.z);
+        cameraMatrix.set(camera.getProjectionMatrix()).mul(camera.getViewMatrix()).mul(rotationMatrix);
+        lightMatrix.set(shadowMap.lightSpaceMatrix).mul(rotationMatrix);
+        cameraFrustum.set(cameraMatrix);
+        lightFrustum.set(lightMatrix);
+        // Moving objects are interpolated between physics steps, which may not happen once per update
+        float objectAlpha = (float)snapshot.clock.interpolation(alpha);
+
+        renderQueue.clear();
+        for (GameObjectType type : GameObjectType.values()) {
+            if (!snapshot.present[type.ordinal()]) continue;
+            RenderQueue.Layer layer = type.layer;
+            LevelSnapshot.ObjectData objects = layer == RenderQueue.Layer.STATIC
+                    ? snapshot.staticObjects.objects.get(type)
+                    : snapshot.movingObjects.get(type);
+
+            ArrayList<StaticChunk> chunks = staticMeshes.get(type);
+            if (chunks != null) {
+                for (StaticChunk chunk : chunks) {
+                    if (!isVisible(chunk.min, chunk.max)) {
+                        chunk.mesh.updateInstances(0);
+                        continue;
+                    }
+                    // Every tile in a batch has the same color
+                    FloatBuffer buffer = chunk.mesh.instanceBuffer(1);
+                    rotationMatrix.get(0, buffer);
+                    for (int i = 0; i < 8; i++) {
+                        buffer.put(16+i, objects.colors[i]);
+                    }
+                    chunk.mesh.updateInstances(1);
+                    renderQueue.add(chunk.mesh, layer);
+                }
+                continue;
             }
-        }
-    }
 
-    private void renderGameColorsInstanced(ShaderProgram shader) {
-        for (Map.Entry<String, ArrayList<? extends GameObject>> entry : gameObjects.entrySet()) {
-            if (entry.getValue().isEmpty()) continue;
-            setViewMatrices(shader, entry.getValue());
-            setColors(0, shader, entry.getValue());
-            setColors(1, shader, entry.getValue());
-            gameObjectMeshes.get(entry.getKey()).renderInstanced(entry.getValue().size());
-        }
-    }
-
-    private void renderGameColors(ShaderProgram shader) {
-        for (Map.Entry<String, ArrayList<? extends GameObject>> entry : gameObjects.entrySet()) {
-            for (GameObject object : entry.getValue()) {
-                shader.setUniform("viewMatrix", camera.getViewMatrix(object.getWorldMatrix(rotation)));
-                shader.setUniform("color0", object.getColor(0));
-                shader.setUniform("color1", object.getColor(1));
-                gameObjectMeshes.get(entry.getKey()).render();
+            GameObjectMesh mesh = gameObjectMeshes.get(type);
+            FloatBuffer buffer = mesh.instanceBuffer(objects.count);
+            int count = 0;
+            for (int i = 0; i < objects.count; i++) {
+                float x = objects.previousPositions[3*i] + (objects.positions[3*i] - objects.previousPositions[3*i]) * objectAlpha;
+                float y = objects.previousPositions[3*i+1] + (objects.positions[3*i+1] - objects.previousPositions[3*i+1]) * objectAlpha;
+                float z = objects.previousPositions[3*i+2] + (objects.positions[3*i+2] - objects.previousPositions[3*i+2]) * objectAlpha;
+                // The bounds are of the current position, so they are moved back along with the object
+                float dx = x - objects.positions[3*i];
+                float dy = y - objects.positions[3*i+1];
+                float dz = z - objects.positions[3*i+2];
+                boundsMin.set(objects.bounds[6*i] + dx, objects.bounds[6*i+1] + dy, objects.bounds[6*i+2] + dz);
+                boundsMax.set(objects.bounds[6*i+3] + dx, objects.bounds[6*i+4] + dy, objects.bounds[6*i+5] + dz);
+                if (!isVisible(boundsMin, boundsMax)) continue;
+                int offset = count*GameObjectMesh.INSTANCE_SIZE;
+                worldMatrix.set(rotationMatrix)
+                        .translate(x, y, z)
+                        .scale(objects.scales[i])
+                        .get(offset, buffer);
+                for (int j = 0; j < 8; j++) {
+                    buffer.put(offset+16+j, objects.colors[8*i+j]);
+                }
+                count++;
             }
+            mesh.updateInstances(count);
+            renderQueue.add(mesh, layer);
         }
+        renderQueue.sort();
     }
 
     /**
-     * Render all game objects. Meant for use with the shadow (depth) map shader
+     * Tests whether an object could be seen by the camera, or could cast a shadow onto something.
+     * An object is culled from both if it is outside the frustum or smaller than a pixel (or texel of the shadow map)
+     * @param min the minimum corner of a box containing the object, before the level's rotation is applied
+     * @param max the maximum corner of the box
      */
-    private void renderDepthsInstanced(ShaderProgram shader) {
-        for (Map.Entry<String, ArrayList<? extends GameObject>> entry : gameObjects.entrySet()) {
-            if (entry.getKey().equals("explosion") || entry.getValue().isEmpty()) continue;
-            setWorldMatrices(shader, entry.getValue());
-            gameObjectMeshes.get(entry.getKey()).renderInstanced(entry.getValue().size());
-        }
-    }
+    private boolean isVisible(Vector3d min, Vector3d max) {
+        double radius = 0.5 * max.distance(min);
 
-    private void renderDepths(ShaderProgram shader) {
-        for (Map.Entry<String, ArrayList<? extends GameObject>> entry : gameObjects.entrySet()) {
-            for (GameObject object : entry.getValue()) {
-                shader.setUniform("worldMatrix", object.getWorldMatrix(rotation));
-                gameObjectMeshes.get(entry.getKey()).render();
-            }
+        if (lightFrustum.testAab((float)min.x, (float)min.y, (float)min.z, (float)max.x, (float)max.y, (float)max.z)
+                && 2*radius >= shadowMap.getTexelSize()) {
+            return true;
+        }
+        if (!cameraFrustum.testAab((float)min.x, (float)min.y, (float)min.z, (float)max.x, (float)max.y, (float)max.z)) {
+            return false;
         }
+        // The w coordinate of the box's center in clip space is its depth in front of the camera
+        double x = 0.5*(min.x + max.x);
+        double y = 0.5*(min.y + max.y);
+        double z = 0.5*(min.z + max.z);
+        double w = cameraMatrix.m03()*x + cameraMatrix.m13()*y + cameraMatrix.m23()*z + cameraMatrix.m33();
+        return w <= radius || radius * camera.getProjectionMatrix().m11() * windowHeight / w >= MIN_SCREEN_SIZE;
     }
 
     /**
-     * Render all game objects. Meant for use with the shadows + sobel filter shader
+     * Renders the latest snapshot of the simulation.
+     * The simulation keeps its own time, so how far the frame is between updates is measured from when the snapshot was taken
      */
-    private void renderGameObjectsInstanced(ShaderProgram shader) {
-        for (Map.Entry<String, ArrayList<? extends GameObject>> entry : gameObjects.entrySet()) {
-            if (entry.getValue().isEmpty()) continue;
-            setViewMatrices(shader, entry.getValue());
-            setColors(0, shader, entry.getValue());
-            setColors(1, shader, entry.getValue());
-            setWorldMatrices(shader, entry.getValue());
-            gameObjectMeshes.get(entry.getKey()).renderInstanced(entry.getValue().size());
-        }
-    }
+    @Override
+    public void render() {
+        snapshot = simulationThread.acquireSnapshot();
+        Level level = snapshot.level;
 
-    private void renderGameObjects(ShaderProgram shader) {
-        for (Map.Entry<String, ArrayList<? extends GameObject>> entry : gameObjects.entrySet()) {
-            for (GameObject object : entry.getValue()) {
-                shader.setUniform("viewMatrix", camera.getViewMatrix(object.getWorldMatrix(rotation)));
-                shader.setUniform("color0", object.getColor(0));
-                shader.setUniform("color1", object.getColor(1));
-                shader.setUniform("worldMatrix", object.getWorldMatrix(rotation));
-                gameObjectMeshes.get(entry.getKey()).render();
-            }
-        }
-    }
+        // Clear even before the simulation thread has loaded a level, so that the first frames don't show leftover contents
+        Vector4f background = level != null ? Colors.levelBackgrounds[level.getColor()] : Colors.background;
+        glClearColor(background.x, background.y, background.z, 1);
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT | GL_STENCIL_BUFFER_BIT);
+        if (level == null) return;
 
-    // The following functions set up variables for use in shaders
-    private void setTransparencies(ShaderProgram shader, ArrayList<? extends GameObject> objects) {
-        FloatBuffer buffer = MemoryUtil.memAllocFloat(objects.size());
-        for (int i = 0; i < objects.size(); i++) {
-            buffer.put(i, objects.get(i).getColor(0).w);
-        }
-        shader.setUniform1fv("transparency", buffer);
-        MemoryUtil.memFree(buffer);
-    }
-    private void setWorldMatrices(ShaderProgram shader, ArrayList<? extends GameObject> objects) {
-        FloatBuffer buffer = MemoryUtil.memAllocFloat(16*objects.size());
-        for (int i = 0; i < objects.size(); i++) {
-            objects.get(i).getWorldMatrix(rotation).get(i*16, buffer);
-        }
-        shader.setUniformMatrix4fv("worldMatrices", buffer);
-        MemoryUtil.memFree(buffer);
-    }
-    private void setViewMatrices(ShaderProgram shader, ArrayList<? extends GameObject> objects) {
-        FloatBuffer buffer = MemoryUtil.memAllocFloat(16*objects.size());
-        for (int i = 0; i < objects.size(); i++) {
-            camera.getViewMatrix(objects.get(i).getWorldMatrix(rotation)).get(i*16, buffer);
-        }
-        shader.setUniformMatrix4fv("viewMatrices", buffer);
-        MemoryUtil.memFree(buffer);
-    }
-    private void setColors(int index, ShaderProgram shader, ArrayList<? extends GameObject> objects) {
-        FloatBuffer buffer = MemoryUtil.memAllocFloat(4*objects.size());
-        for (int i = 0; i < objects.size(); i++) {
-            objects.get(i).getColor(index).get(i*4, buffer);
+        if (snapshot.staticObjects != bakedStaticObjects) {
+            bakeStaticMeshes(snapshot.staticObjects);
         }
-        shader.setUniform4fv("color" + index, buffer);
-        MemoryUtil.memFree(buffer);
-    }
-
-    public void render() {
-        if (level == null) return;
+        double snapshotAlpha = cutMaxMin((double)(System.nanoTime() - snapshot.time) / snapshot.nsPerUpdate, 0, 1);
 
-        glClearColor(Colors.levelBackgrounds[level.getColor()].x, Colors.levelBackgrounds[level.getColor()].y, Colors.levelBackgrounds[level.getColor()].z, 1);
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT | GL_STENCIL_BUFFER_BIT);
         glEnable(GL_DEPTH_TEST);
         glEnable(GL_CULL_FACE);
         glCullFace(GL_BACK);
@@ -555,39 +416,59 @@ public class LevelScene extends Scene {
         glDisable(GL_STENCIL_TEST);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
-        // Draw normals to edgeSourceFbo
-        // These normals are used to draw edges (using a sobel filter)
+        // Every pass below draws the same instances, so they are only uploaded once per frame
+        updateInstances(snapshotAlpha);
+
+        // Draw normals and colors to edgeSourceFbo in a single pass
+        // These are used to draw edges (using a sobel filter)
+        normalsAndColorsShader.bind();
+        normalsAndColorsShader.setUniform("projectionMatrix", camera.getProjectionMatrix());
+        normalsAndColorsShader.setUniform("viewMatrix", camera.getViewMatrix());
+        // Objects that don't move are only drawn when the camera or the level's rotation changes
+        if (!isStaticEdgeSourceValid || staticEdgeSourceRevision != snapshot.staticRevision
+                || !staticEdgeSourceMatrix.equals(cameraMatrix, 1e-6f)) {
+            isStaticEdgeSourceValid = true;
+            staticEdgeSourceRevision = snapshot.staticRevision;
+            staticEdgeSourceMatrix.set(cameraMatrix);
+
+            staticEdgeSourceFbo.bind();
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                glClearBufferfv(GL_COLOR, 0, stack.floats(0f, 0f, 0f, 1f));
+                glClearBufferfv(GL_COLOR, 1, stack.floats(0f, 0f, 0f, 0f));
+            }
+            glClear(GL_DEPTH_BUFFER_BIT);
+            renderQueue.render(RenderQueue.Layer.STATIC, RenderQueue.Layer.STATIC);
+        }
+        staticEdgeSourceFbo.copyTo(edgeSourceFbo);
         edgeSourceFbo.bind();
-        glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-
-        colorNormalsShader.bind();
-        colorNormalsShader.setUniform("projectionMatrix", camera.getProjectionMatrix());
-
-        renderGameNormals(colorNormalsShader);
-
-        // Draw colors to colorSourceFbo (also used in edge drawing)
-        colorSourceFbo.bind();
-        glClearColor(0f, 0f, 0f, 0f);
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-        colorShader.bind();
-        colorShader.setUniform("projectionMatrix", camera.getProjectionMatrix());
-        renderGameColors(colorShader);
+        renderQueue.render(RenderQueue.Layer.DYNAMIC, RenderQueue.Layer.TRANSLUCENT);
 
         // Compute a shadow map
         // This is used to determine whether a fragment is in a shadow
         depthShader.bind();
-        shadowMap.depthMap.bind();
-        glViewport(0, 0, shadowMap.getWidth(), shadowMap.getHeight());
-        glClear(GL_DEPTH_BUFFER_BIT);
 //        glCullFace(GL_FRONT);
         depthShader.setUniform("lightSpaceMatrix", shadowMap.lightSpaceMatrix);
-        renderDepths(depthShader);
+        // Objects that don't move are only rendered when the level's rotation changes
+        if (shadowMap.beginStatic(renderRotation, snapshot.staticRevision)) {
+            renderQueue.render(RenderQueue.Layer.STATIC, RenderQueue.Layer.STATIC);
+        }
+        shadowMap.beginDynamic();
+        renderQueue.render(RenderQueue.Layer.DYNAMIC, RenderQueue.Layer.TRANSLUCENT);
         FrameBufferObject.unbind();
         glCullFace(GL_BACK);
 
         // Draw to screen
         glViewport(0, 0, windowWidth, windowHeight);
+
+        // Lay down the depth of the opaque objects first, so that the expensive shader below
+        // only runs once for every visible pixel
+        glColorMask(false, false, false, false);
+        depthPrepassShader.bind();
+        depthPrepassShader.setUniform("projectionMatrix", camera.getProjectionMatrix());
+        depthPrepassShader.setUniform("viewMatrix", camera.getViewMatrix());
+        renderQueue.render(RenderQueue.Layer.STATIC, RenderQueue.Layer.DYNAMIC);
+        glColorMask(true, true, true, true);
+
         levelShader.bind();
         levelShader.setUniform("inShadowColor", Colors.levelBackgrounds[level.getColor()]);
         levelShader.setUniform("normalTexture", 0);
@@ -595,6 +476,7 @@ public class LevelScene extends Scene {
         levelShader.setUniform("colorTexture", 2);
         levelShader.setUniform("shadowMap", 3);
         levelShader.setUniform("projectionMatrix", camera.getProjectionMatrix());
+        levelShader.setUniform("viewMatrix", camera.getViewMatrix());
         levelShader.setUniform("lightSpaceMatrix", shadowMap.lightSpaceMatrix);
 
         glActiveTexture(GL_TEXTURE0);
@@ -602,11 +484,18 @@ public class LevelScene extends Scene {
         glActiveTexture(GL_TEXTURE1);
         edgeSourceFbo.getDepthTexture().bind();
         glActiveTexture(GL_TEXTURE2);
-        colorSourceFbo.getColorTexture().bind();
+        edgeSourceFbo.getColorTexture(1).bind();
         glActiveTexture(GL_TEXTURE3);
         shadowMap.depthMap.getDepthTexture().bind();
 
-        renderGameObjects(levelShader);
+        glDepthFunc(GL_EQUAL);
+        glDepthMask(false);
+        renderQueue.render(RenderQueue.Layer.STATIC, RenderQueue.Layer.DYNAMIC);
+        glDepthFunc(GL_LESS);
+        glDepthMask(true);
+
+        // Translucent objects are blended over whatever is behind them, so they are tested against the depth as usual
+        renderQueue.render(RenderQueue.Layer.TRANSLUCENT, RenderQueue.Layer.TRANSLUCENT);
     }
     @Override
     public void nvgRender(NanoVGContext nvg) {
@@ -621,147 +510,72 @@ public class LevelScene extends Scene {
     }
 
     /**
-     * Loads all game objects in a level
+     * Loads all game objects in a level. The level is drawn once the simulation has loaded it too
      */
     public void loadLevel(Level level) {
         this.level = level;
-
-        // Clear all game objects / level state
-        floorTiles.clear();
-        holeTiles.clear();
-        coverTiles.clear();
-        wallXTiles.clear();
-        wallYTiles.clear();
-        tallTiles.clear();
-        for (Ball ball : balls) ball.delete();
-        for (Ball ball : ballExplosions) ball.delete();
-        for (ArrayList<Box> walls : coloredWallsX) walls.clear();
-        for (ArrayList<Box> walls : coloredWallsY) walls.clear();
-        balls.clear();
-        ballExplosions.clear();
-        spikeTiles.clear();
-
-        gameObjects.put("wallX1", coloredWallsX[0]);
-        gameObjects.put("wallX2", coloredWallsX[1]);
-        gameObjects.put("wallX3", coloredWallsX[2]);
-        gameObjects.put("wallY1", coloredWallsY[0]);
-        gameObjects.put("wallY2", coloredWallsY[1]);
-        gameObjects.put("wallY3", coloredWallsY[2]);
-
-        hasWon = false;
-        hasDied = false;
-
+        generation++;
+        simulationThread.loadLevel(level, generation);
+        stopwatch.start();
         camera.position.z = cameraDistanceFactor();
         shadowMap.setRadius(Math.max(level.getRows(), level.getColumns())*0.7f);
 //        shadowMap.setFarPlane(factor * 1.25f);
         shadowMap.updateLightSpaceMatrix();
+    }
 
-        stopwatch.start();
+    /**
+     * Reset the current level
+     */
+    public void reset() {
+        loadLevel(level);
+    }
 
-        for (int i = 0; i < level.getRows(); i++) {
-            // Load all floor tiles
-            for (int j = 0; j < level.getColumns(); j++) {
-                if (level.getFloorState(i, j) == FloorTile.FLOOR) {
-                    Box tile = new Box(new Line3d(
-                            new Vector3d(level.getPosX(j), level.getPosY(i), -floorTileHeight),
-                            new Vector3d(1, 1, floorTileHeight)
-                    ));
-                    tile.getColor(0).set(Colors.tile);
-                    floorTiles.add(tile);
-
-                } else if (FloorTile.goalColor(level.getFloorState(i, j)) != 0) {
-                    int holeColor = FloorTile.goalColor(level.getFloorState(i, j));
-                    HoleBox tile = new HoleBox(new Line3d(
-                            new Vector3d(level.getPosX(j), level.getPosY(i), -floorTileHeight),
-                            new Vector3d(1, 1, floorTileHeight)
-                    ), 0.4);
-                    tile.getColor(0).set(Colors.tile);
-                    tile.getColor(1).set(Colors.base[holeColor-1]);
-                    tile.setHoleColor(holeColor);
-                    holeTiles.add(tile);
-                    tile.cover.getColor(0).set(Colors.tile);
-                    coverTiles.add(tile.cover);
-                } else if (level.getFloorState(i, j) == FloorTile.TALL) {
-                    Box tile = new Box(new Line3d(
-                            new Vector3d(level.getPosX(j), level.getPosY(i), -floorTileHeight),
-                            new Vector3d(1, 1, floorTileHeight+wallHeight)
-                    ));
-                    tile.getColor(0).set(Colors.tile);
-                    tallTiles.add(tile);
-                } else if (level.getFloorState(i, j) == FloorTile.SPIKE) {
-                    Box tile = new Box(new Line3d(
-                            new Vector3d(level.getPosX(j), level.getPosY(i), -floorTileHeight),
-                            new Vector3d(1, 1, floorTileHeight)
-                    ));
-                    tile.getColor(0).set(Colors.tile);
-                    spikeTiles.add(tile);
-                }
+    /**
+     * Merges the tiles of every static type in a level into one mesh per chunk, with the tiles' positions built in
+     */
+    private void bakeStaticMeshes(LevelSnapshot.StaticObjects staticObjects) {
+        deleteStaticMeshes();
+        bakedStaticObjects = staticObjects;
+        Vector3f offset = new Vector3f();
+        for (Map.Entry<GameObjectType, MeshBuilder> template : staticMeshTemplates.entrySet()) {
+            LevelSnapshot.ObjectData objects = staticObjects.objects.get(template.getKey());
+            if (objects.count == 0) continue;
+            HashMap<Long, StaticChunk> chunks = new HashMap<>();
+            for (int i = 0; i < objects.count; i++) {
+                offset.set(objects.positions[3*i], objects.positions[3*i+1], objects.positions[3*i+2]);
+                long chunkX = (long)Math.floor(offset.x / CHUNK_SIZE);
+                long chunkY = (long)Math.floor(offset.y / CHUNK_SIZE);
+                StaticChunk chunk = chunks.computeIfAbsent((chunkX << 32) ^ (chunkY & 0xffffffffL), key -> new StaticChunk());
+                chunk.builder.addMesh(template.getValue(), offset);
+                chunk.min.min(boundsMin.set(objects.bounds[6*i], objects.bounds[6*i+1], objects.bounds[6*i+2]));
+                chunk.max.max(boundsMax.set(objects.bounds[6*i+3], objects.bounds[6*i+4], objects.bounds[6*i+5]));
             }
-            // Load all vertically-oriented walls
-            for (int j = 0; j < level.getColumns()+1; j++) {
-                Box tile = new Box(new Line3d(
-                        new Vector3d(level.getPosX(j)-0.05, level.getPosY(i)-0.05, -floorTileHeight),
-                        new Vector3d(0.1, 1.1, floorTileHeight+wallHeight)
-                ));
-                int holeColor = WallTile.wallColor(level.getWallXState(i, j));
-
-                if (level.getWallXState(i, j) == WallTile.WALL) {
-                    tile.getColor(0).set(Colors.tile);
-                    wallXTiles.add(tile);
-                } else if (holeColor != 0) {
-                    tile.getColor(0).set(Colors.base[holeColor-1]);
-                    coloredWallsX[holeColor-1].add(tile);
-                }
+            for (StaticChunk chunk : chunks.values()) {
+                chunk.mesh = chunk.builder.createMesh();
+                chunk.builder = null;
             }
+            staticMeshes.put(template.getKey(), new ArrayList<>(chunks.values()));
         }
-        // Load all horizontally-oriented walls
-        for (int i = 0; i < level.getRows()+1; i++) {
-            for (int j = 0; j < level.getColumns(); j++) {
-                Box tile = new Box(new Line3d(
-                        new Vector3d(level.getPosX(j)-0.05, level.getPosY(i)-0.05, -floorTileHeight),
-                        new Vector3d(1.1, 0.1, floorTileHeight+wallHeight)
-                ));
-                int holeColor = WallTile.wallColor(level.getWallYState(i, j));
-
-                if (level.getWallYState(i, j) == WallTile.WALL) {
-                    tile.getColor(0).set(Colors.tile);
-                    wallYTiles.add(tile);
-                } else if (holeColor != 0) {
-                    tile.getColor(0).set(Colors.base[holeColor-1]);
-                    coloredWallsY[holeColor-1].add(tile);
-                }
+    }
+    private void deleteStaticMeshes() {
+        for (ArrayList<StaticChunk> chunks : staticMeshes.values()) {
+            for (StaticChunk chunk : chunks) {
+                chunk.mesh.delete();
             }
         }
-
-        // Load all balls
-        for (int i = 0; i < level.numberBalls(); i++) {
-            Ball ball = new Ball(
-                    new Sphere(new Vector3d(level.getPosX(level.getBallColumn(i))+0.5, level.getPosY(level.getBallRow(i))+0.5, 0.35), 0.35),
-                    audioHandler
-            );
-            ball.getColor(0).set(Colors.base[i]);
-            ball.setHoleColor(i+1);
-            balls.add(ball);
-        }
+        staticMeshes.clear();
     }
 
-    /**
-     * Reset the current level
-     */
-    public void reset() {
-        loadLevel(level);
-    }
     public void setPaused(boolean value) {
-        isPaused = value;
+        simulationThread.setPaused(value);
     }
     public void delete() {
-        for (Ball ball : balls) {
-            ball.delete();
-        }
-        for (Ball ball : ballExplosions) {
-            ball.delete();
+        simulationThread.stop();
+        for (GameObjectMesh mesh : gameObjectMeshes.values()) {
+            mesh.delete();
         }
-        for (Deletable obj : new Deletable[] {floorMesh, holeMesh, holeCoverMesh, wallXMesh, wallXMeshThinner, wallYMesh, wallYMeshThinner, tallTileMesh, ballMesh, spikeMesh, colorNormalsShader, outlineShader, depthShader, levelShader, textureShader, spikeMesh}) {
+        deleteStaticMeshes();
+        for (Deletable obj : new Deletable[] {normalsAndColorsShader, edgeSourceFbo, staticEdgeSourceFbo, outlineShader, depthShader, depthPrepassShader, levelShader, textureShader}) {
             obj.delete();
         }
     }
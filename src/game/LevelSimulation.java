@@ -0,0 +1,472 @@
+package game;
+
+import collision.CollisionHandler;
+import collision.CollisionWorld;
+import org.joml.Matrix3f;
+import org.joml.Vector3d;
+import shape.Line3d;
+import shape.Sphere;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+
+import static math.MathUtil.cutMaxMin;
+
+/**
+ * Holds the state of a level (its tiles, balls, and collisions) and advances it frame by frame.
+ * Does not depend on OpenGL or OpenAL, so levels can be simulated without a window or audio device;
+ * LevelScene renders the simulation and plays its sounds
+ */
+public class LevelSimulation {
+    public static final double FLOOR_TILE_HEIGHT = 0.5;
+    public static final double WALL_HEIGHT = 0.75;
+    public static final double BALL_RADIUS = 0.35;
+
+    private Level level;
+
+    private final ArrayList<Box> floorTiles;
+    private final ArrayList<HoleBox> holeTiles;
+    private final ArrayList<HoleBoxCover> coverTiles;
+    private final ArrayList<Box> wallXTiles;
+    private final ArrayList<Box>[] coloredWallsX;
+    private final ArrayList<Box> wallYTiles;
+    private final ArrayList<Box>[] coloredWallsY;
+    private final ArrayList<Box> tallTiles;
+    private final ArrayList<Ball> balls;
+    private final ArrayList<Ball> ballExplosions;
+    private final ArrayList<Box> spikeTiles;
+    private final EnumMap<GameObjectType, ArrayList<? extends GameObject>> gameObjects;
+    private final CollisionHandler collisionHandler;
+    private final CollisionWorld collisionWorld;
+    private final CollisionWorld explosionCollisionWorld;
+    // The part of the level that an exploding ball can reach in the current step
+    private final Sphere explosionRegion;
+
+    private final Vector3d rotation;
+    private final Matrix3f rotationMatrix;
+
+    private boolean hasDied;
+    private boolean hasWon;
+    private int staticRevision;
+
+    public final FrameTimer stopwatch;
+
+    public LevelSimulation() {
+        floorTiles = new ArrayList<>();
+        holeTiles = new ArrayList<>();
+        coverTiles = new ArrayList<>();
+        wallXTiles = new ArrayList<>();
+        wallYTiles = new ArrayList<>();
+        tallTiles = new ArrayList<>();
+        balls = new ArrayList<>();
+        ballExplosions = new ArrayList<>();
+        coloredWallsX = new ArrayList[] { new ArrayList<Box>(), new ArrayList<Box>(), new ArrayList<Box>() };
+        coloredWallsY = new ArrayList[] { new ArrayList<Box>(), new ArrayList<Box>(), new ArrayList<Box>() };
+        spikeTiles = new ArrayList<>();
+
+        gameObjects = new EnumMap<>(GameObjectType.class);
+        gameObjects.put(GameObjectType.FLOOR, floorTiles);
+        gameObjects.put(GameObjectType.HOLE, holeTiles);
+        gameObjects.put(GameObjectType.COVER, coverTiles);
+        gameObjects.put(GameObjectType.WALL_X, wallXTiles);
+        gameObjects.put(GameObjectType.WALL_X1, coloredWallsX[0]);
+        gameObjects.put(GameObjectType.WALL_X2, coloredWallsX[1]);
+        gameObjects.put(GameObjectType.WALL_X3, coloredWallsX[2]);
+        gameObjects.put(GameObjectType.WALL_Y, wallYTiles);
+        gameObjects.put(GameObjectType.WALL_Y1, coloredWallsY[0]);
+        gameObjects.put(GameObjectType.WALL_Y2, coloredWallsY[1]);
+        gameObjects.put(GameObjectType.WALL_Y3, coloredWallsY[2]);
+        gameObjects.put(GameObjectType.TALL, tallTiles);
+        gameObjects.put(GameObjectType.BALL, balls);
+        gameObjects.put(GameObjectType.EXPLOSION, ballExplosions);
+        gameObjects.put(GameObjectType.SPIKE, spikeTiles);
+
+        rotation = new Vector3d();
+        rotationMatrix = new Matrix3f();
+
+        hasDied = false;
+        hasWon = false;
+        collisionHandler = new CollisionHandler();
+        collisionWorld = new CollisionWorld();
+        explosionCollisionWorld = new CollisionWorld();
+        explosionRegion = new Sphere();
+
+        stopwatch = new FrameTimer(Integer.MAX_VALUE-1);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+    public boolean hasDied() {
+        return hasDied;
+    }
+    public boolean hasWon() {
+        return hasWon;
+    }
+    public int getStarLevel() {
+        return level.getStarLevel(stopwatch.getFrame());
+    }
+
+    /**
+     * @return the number of collision iterations done since the level was loaded (see CollisionHandler.processCollisions())
+     */
+    public long getCollisionIterations() {
+        return collisionHandler.getIterations();
+    }
+
+    /**
+     * Remembers the positions of every object that can move, so that the renderer can interpolate from them.
+     * Should be called before the steps of an update are run
+     */
+    public void savePreviousPositions() {
+        for (Ball ball : balls) ball.savePreviousPosition();
+        for (Ball ball : ballExplosions) ball.savePreviousPosition();
+        for (HoleBoxCover cover : coverTiles) cover.savePreviousPosition();
+    }
+
+    /**
+     * @return a number that changes whenever tiles are added or removed (when a level is loaded, or colored walls are removed)
+     */
+    public int getStaticRevision() {
+        return staticRevision;
+    }
+
+    /**
+     * @return the game objects in the level, keyed by their type.
+     * Colored walls are removed from this map once the ball of their color reaches its goal
+     */
+    public EnumMap<GameObjectType, ArrayList<? extends GameObject>> getGameObjects() {
+        return gameObjects;
+    }
+
+    /**
+     * @return the balls that are not exploding
+     */
+    public ArrayList<Ball> getBalls() {
+        return balls;
+    }
+
+    /**
+     * @return the rotation of the level, as set by the last call to setRotation() or step()
+     */
+    public Vector3d getRotation() {
+        return rotation;
+    }
+
+    /**
+     * @return the matrix of the level's rotation; updated in place whenever the rotation changes
+     */
+    public Matrix3f getRotationMatrix() {
+        return rotationMatrix;
+    }
+
+    public void setRotation(Vector3d value) {
+        rotation.set(value);
+        rotationMatrix.identity()
+                .rotateX((float)rotation.x)
+                .rotateY((float)rotation.y)
+                .rotateZ((float)rotation.z);
+    }
+
+    /**
+     * Advances the level by one frame
+     * @param rotation the rotation of the level (the player's input)
+     */
+    public void step(Vector3d rotation) {
+        setRotation(rotation);
+        if (!hasWon) {
+            stopwatch.advanceFrame();
+        }
+
+        updateBalls();
+
+        for (HoleBox hole : holeTiles) {
+            hole.update();
+        }
+    }
+
+    /**
+     * Adds the collision objects of every tile in the level to a collision world
+     * @param world the world
+     * @param ballRadius the radius of the balls that will collide with the world
+     */
+    private void compileCollisionWorld(CollisionWorld world, double ballRadius) {
+        world.reset(ballRadius, level.getPosX(0), level.getPosY(0), level.getColumns(), level.getRows());
+        addTileColliders(world, null);
+    }
+
+    /**
+     * Adds the collision objects of the tiles near a sphere to a collision world, whose grid only covers the sphere.
+     * Compiling only part of the level keeps the cost independent of the level's size
+     * @param world the world
+     * @param ballRadius the radius of the balls that will collide with the world
+     * @param region the sphere; tiles whose bounding box doesn't overlap its bounding box are left out
+     */
+    private void compileCollisionWorld(CollisionWorld world, double ballRadius, Sphere region) {
+        int column1 = Math.max(0, (int)Math.floor(region.position.x - region.getRadius() - level.getPosX(0)));
+        int column2 = Math.min(level.getColumns()-1, (int)Math.floor(region.position.x + region.getRadius() - level.getPosX(0)));
+        int row1 = Math.max(0, (int)Math.floor(region.position.y - region.getRadius() - level.getPosY(0)));
+        int row2 = Math.min(level.getRows()-1, (int)Math.floor(region.position.y + region.getRadius() - level.getPosY(0)));
+        world.reset(ballRadius, level.getPosX(column1), level.getPosY(row1), column2-column1+1, row2-row1+1);
+        addTileColliders(world, region);
+    }
+
+    /**
+     * @param region the sphere tiles must be near, or null to add every tile
+     */
+    private void addTileColliders(CollisionWorld world, Sphere region) {
+        addBoxColliders(world, wallXTiles, region);
+        addBoxColliders(world, wallYTiles, region);
+        for (int i = 0; i < coloredWallsX.length; i++) {
+            if (gameObjects.containsKey(GameObjectType.coloredWallX(i+1))) {
+                addBoxColliders(world, coloredWallsX[i], region);
+            }
+        }
+        for (int i = 0; i < coloredWallsY.length; i++) {
+            if (gameObjects.containsKey(GameObjectType.coloredWallY(i+1))) {
+                addBoxColliders(world, coloredWallsY[i], region);
+            }
+        }
+        addBoxColliders(world, floorTiles, region);
+        addBoxColliders(world, tallTiles, region);
+        for (int i = 0; i < holeTiles.size(); i++) {
+            if (isNear(holeTiles.get(i), region)) world.addHoleBoxColliders(holeTiles.get(i));
+        }
+        for (int i = 0; i < spikeTiles.size(); i++) {
+            if (isNear(spikeTiles.get(i), region)) world.addSpikeColliders(spikeTiles.get(i));
+        }
+        world.addFallDeathTrigger();
+    }
+    private static void addBoxColliders(CollisionWorld world, ArrayList<Box> boxes, Sphere region) {
+        for (int i = 0; i < boxes.size(); i++) {
+            if (isNear(boxes.get(i), region)) world.addBoxFloorColliders(boxes.get(i));
+        }
+    }
+
+    /**
+     * @return true if region is null, or if the bounding boxes of the box and region overlap (in the xy-plane)
+     */
+    private static boolean isNear(Box box, Sphere region) {
+        if (region == null) return true;
+        double radius = region.getRadius();
+        return box.geometry.x2() >= region.position.x - radius && box.geometry.x1() <= region.position.x + radius
+                && box.geometry.y2() >= region.position.y - radius && box.geometry.y1() <= region.position.y + radius;
+    }
+
+    private void setupCollisions(Ball ball) {
+        if (ball.isInExplosionAnimation()) {
+            // Exploding balls change radius every step, so their world is recompiled every step, but only
+            // with the tiles they can reach: objects extruded by the radius, near the sphere swept by the ball
+            explosionRegion.set(ball.geometry.position, 2*ball.getRadius() + ball.velocity.length());
+            compileCollisionWorld(explosionCollisionWorld, ball.getRadius(), explosionRegion);
+            collisionHandler.setWorld(explosionCollisionWorld);
+        } else {
+            if (!collisionWorld.isValid() || collisionWorld.getBallRadius() != ball.getRadius()) {
+                compileCollisionWorld(collisionWorld, ball.getRadius());
+            }
+            collisionHandler.setWorld(collisionWorld);
+        }
+        collisionHandler.setBall(ball);
+    }
+
+    /**
+     * Update balls and handle their collisions
+     */
+    public void updateBalls() {
+        int ballsWon = 0;
+
+        for (int i = balls.size()-1; i >= 0; i--) {
+            if (balls.get(i).isInExplosionAnimation()) {
+                ballExplosions.add(balls.get(i));
+                balls.remove(i);
+            }
+        }
+
+        for (Ball ball : ballExplosions) {
+            ball.velocity.z = 0;
+            ball.update();
+            if (ball.isDead()) {
+                hasDied = true;
+            }
+            setupCollisions(ball);
+            collisionHandler.processCollisions();
+        }
+
+        for (Ball ball : balls) {
+            if (ball.isDead()) {
+                hasDied = true;
+                continue;
+            }
+            if (ball.hasReachedGoal()) {
+                ballsWon++;
+                ball.queueSplash();
+                ball.update();
+                // Hide the ball if it has reached its goal
+                ball.geometry.position.set(0, 0, 10000);
+
+                // Remove colored walls
+                boolean removedWallsX = gameObjects.remove(GameObjectType.coloredWallX(ball.getHoleColor())) != null;
+                boolean removedWallsY = gameObjects.remove(GameObjectType.coloredWallY(ball.getHoleColor())) != null;
+                if (removedWallsX || removedWallsY) {
+                    staticRevision++;
+                    collisionWorld.invalidate();
+                }
+                continue;
+            }
+            // Fade the ball out when it falls
+            ball.getColor(0).w = (float)cutMaxMin(1.25 + ball.geometry.position.z, 0, 1);
+
+            // Accelerate the ball based on the level's rotation
+            ball.velocity.x += Math.sin(rotation.y * 0.0004);
+            ball.velocity.x = cutMaxMin(ball.velocity.x, -0.04f, 0.04f);
+            ball.velocity.y += -Math.sin(rotation.x * 0.0004);
+            ball.velocity.y = cutMaxMin(ball.velocity.y, -0.04f, 0.04f);
+
+            // Apply gravity
+            ball.velocity.z -= 0.00045;
+
+            // Handle collisions
+            setupCollisions(ball);
+            for (Ball collisionBall : balls) {
+                if (ball == collisionBall) continue;
+                collisionHandler.addBallColliders(collisionBall);
+            }
+            collisionHandler.processCollisions();
+
+            ball.update();
+        }
+
+
+        if (ballsWon == level.getNumberBalls()) {
+            hasWon = true;
+        }
+    }
+
+    /**
+     * Loads all game objects in a level
+     */
+    public void loadLevel(Level level) {
+        this.level = level;
+
+        // Clear all game objects / level state
+        floorTiles.clear();
+        holeTiles.clear();
+        coverTiles.clear();
+        wallXTiles.clear();
+        wallYTiles.clear();
+        tallTiles.clear();
+        for (ArrayList<Box> walls : coloredWallsX) walls.clear();
+        for (ArrayList<Box> walls : coloredWallsY) walls.clear();
+        balls.clear();
+        ballExplosions.clear();
+        spikeTiles.clear();
+
+        gameObjects.put(GameObjectType.WALL_X1, coloredWallsX[0]);
+        gameObjects.put(GameObjectType.WALL_X2, coloredWallsX[1]);
+        gameObjects.put(GameObjectType.WALL_X3, coloredWallsX[2]);
+        gameObjects.put(GameObjectType.WALL_Y1, coloredWallsY[0]);
+        gameObjects.put(GameObjectType.WALL_Y2, coloredWallsY[1]);
+        gameObjects.put(GameObjectType.WALL_Y3, coloredWallsY[2]);
+
+        hasWon = false;
+        hasDied = false;
+        staticRevision++;
+
+        stopwatch.start();
+
+        for (int i = 0; i < level.getRows(); i++) {
+            // Load all floor tiles
+            for (int j = 0; j < level.getColumns(); j++) {
+                if (level.getFloorState(i, j) == FloorTile.FLOOR) {
+                    Box tile = new Box(new Line3d(
+                            new Vector3d(level.getPosX(j), level.getPosY(i), -FLOOR_TILE_HEIGHT),
+                            new Vector3d(1, 1, FLOOR_TILE_HEIGHT)
+                    ));
+                    tile.getColor(0).set(Colors.tile);
+                    floorTiles.add(tile);
+
+                } else if (FloorTile.goalColor(level.getFloorState(i, j)) != 0) {
+                    int holeColor = FloorTile.goalColor(level.getFloorState(i, j));
+                    HoleBox tile = new HoleBox(new Line3d(
+                            new Vector3d(level.getPosX(j), level.getPosY(i), -FLOOR_TILE_HEIGHT),
+                            new Vector3d(1, 1, FLOOR_TILE_HEIGHT)
+                    ), 0.4);
+                    tile.getColor(0).set(Colors.tile);
+                    tile.getColor(1).set(Colors.base[holeColor-1]);
+                    tile.setHoleColor(holeColor);
+                    holeTiles.add(tile);
+                    tile.cover.getColor(0).set(Colors.tile);
+                    coverTiles.add(tile.cover);
+                } else if (level.getFloorState(i, j) == FloorTile.TALL) {
+                    Box tile = new Box(new Line3d(
+                            new Vector3d(level.getPosX(j), level.getPosY(i), -FLOOR_TILE_HEIGHT),
+                            new Vector3d(1, 1, FLOOR_TILE_HEIGHT+WALL_HEIGHT)
+                    ));
+                    tile.getColor(0).set(Colors.tile);
+                    tallTiles.add(tile);
+                } else if (level.getFloorState(i, j) == FloorTile.SPIKE) {
+                    Box tile = new Box(new Line3d(
+                            new Vector3d(level.getPosX(j), level.getPosY(i), -FLOOR_TILE_HEIGHT),
+                            new Vector3d(1, 1, FLOOR_TILE_HEIGHT)
+                    ));
+                    tile.getColor(0).set(Colors.tile);
+                    spikeTiles.add(tile);
+                }
+            }
+            // Load all vertically-oriented walls
+            for (int j = 0; j < level.getColumns()+1; j++) {
+                Box tile = new Box(new Line3d(
+                        new Vector3d(level.getPosX(j)-0.05, level.getPosY(i)-0.05, -FLOOR_TILE_HEIGHT),
+                        new Vector3d(0.1, 1.1, FLOOR_TILE_HEIGHT+WALL_HEIGHT)
+                ));
+                int holeColor = WallTile.wallColor(level.getWallXState(i, j));
+
+                if (level.getWallXState(i, j) == WallTile.WALL) {
+                    tile.getColor(0).set(Colors.tile);
+                    wallXTiles.add(tile);
+                } else if (holeColor != 0) {
+                    tile.getColor(0).set(Colors.base[holeColor-1]);
+                    coloredWallsX[holeColor-1].add(tile);
+                }
+            }
+        }
+        // Load all horizontally-oriented walls
+        for (int i = 0; i < level.getRows()+1; i++) {
+            for (int j = 0; j < level.getColumns(); j++) {
+                Box tile = new Box(new Line3d(
+                        new Vector3d(level.getPosX(j)-0.05, level.getPosY(i)-0.05, -FLOOR_TILE_HEIGHT),
+                        new Vector3d(1.1, 0.1, FLOOR_TILE_HEIGHT+WALL_HEIGHT)
+                ));
+                int holeColor = WallTile.wallColor(level.getWallYState(i, j));
+
+                if (level.getWallYState(i, j) == WallTile.WALL) {
+                    tile.getColor(0).set(Colors.tile);
+                    wallYTiles.add(tile);
+                } else if (holeColor != 0) {
+                    tile.getColor(0).set(Colors.base[holeColor-1]);
+                    coloredWallsY[holeColor-1].add(tile);
+                }
+            }
+        }
+
+        // Load all balls
+        for (int i = 0; i < level.numberBalls(); i++) {
+            Ball ball = new Ball(
+                    new Sphere(new Vector3d(level.getPosX(level.getBallColumn(i))+0.5, level.getPosY(level.getBallRow(i))+0.5, 0.35), BALL_RADIUS)
+            );
+            ball.getColor(0).set(Colors.base[i]);
+            ball.setHoleColor(i+1);
+            balls.add(ball);
+        }
+
+        collisionHandler.reset();
+        compileCollisionWorld(collisionWorld, BALL_RADIUS);
+    }
+
+    /**
+     * Reset the current level
+     */
+    public void reset() {
+        loadLevel(level);
+    }
+}
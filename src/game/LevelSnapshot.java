@@ -0,0 +1,132 @@
+package game;
+
+import graphics.RenderQueue;
+import org.joml.Vector3d;
+import org.joml.Vector4f;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+
+/**
+ * Everything needed to render a LevelSimulation as of one update, copied out of it
+ * so that it can be rendered on one thread while the simulation continues on another
+ */
+public class LevelSnapshot {
+    /**
+     * The positions, sizes, bounds and colors of the game objects of one type
+     */
+    public static class ObjectData {
+        public int count;
+        // 3 floats per object: the position before the last update's physics steps, and the current position
+        public float[] previousPositions;
+        public float[] positions;
+        // 1 float per object
+        public float[] scales;
+        // 6 floats per object: the minimum and then maximum corner of the object's bounds (see GameObject.getBounds())
+        public float[] bounds;
+        // 8 floats per object: color 0 and then color 1
+        public float[] colors;
+
+        public ObjectData() {
+            resize(16);
+        }
+        private void resize(int capacity) {
+            previousPositions = new float[3*capacity];
+            positions = new float[3*capacity];
+            scales = new float[capacity];
+            bounds = new float[6*capacity];
+            colors = new float[8*capacity];
+        }
+
+        /**
+         * Copies a list of game objects, replacing the previous contents
+         */
+        public void set(ArrayList<? extends GameObject> objects, Vector3d boundsMin, Vector3d boundsMax) {
+            if (objects.size() > scales.length) {
+                resize(Math.max(objects.size(), 2*scales.length));
+            }
+            count = objects.size();
+            for (int i = 0; i < count; i++) {
+                GameObject object = objects.get(i);
+                Vector3d previous = object.getPreviousPosition();
+                previousPositions[3*i] = (float)previous.x;
+                previousPositions[3*i+1] = (float)previous.y;
+                previousPositions[3*i+2] = (float)previous.z;
+                positions[3*i] = (float)object.getPosition().x;
+                positions[3*i+1] = (float)object.getPosition().y;
+                positions[3*i+2] = (float)object.getPosition().z;
+                scales[i] = (float)object.getScale();
+                object.getBounds(boundsMin, boundsMax);
+                bounds[6*i] = (float)boundsMin.x;
+                bounds[6*i+1] = (float)boundsMin.y;
+                bounds[6*i+2] = (float)boundsMin.z;
+                bounds[6*i+3] = (float)boundsMax.x;
+                bounds[6*i+4] = (float)boundsMax.y;
+                bounds[6*i+5] = (float)boundsMax.z;
+                for (int j = 0; j < 2; j++) {
+                    Vector4f color = object.getColor(j);
+                    colors[8*i+4*j] = color.x;
+                    colors[8*i+4*j+1] = color.y;
+                    colors[8*i+4*j+2] = color.z;
+                    colors[8*i+4*j+3] = color.w;
+                }
+            }
+        }
+    }
+
+    /**
+     * The game objects of a level that never move, copied once when the level is loaded.
+     * Never modified afterwards, so it is shared by every snapshot of the level
+     */
+    public static class StaticObjects {
+        public final EnumMap<GameObjectType, ObjectData> objects;
+        public StaticObjects(LevelSimulation simulation) {
+            objects = new EnumMap<>(GameObjectType.class);
+            Vector3d boundsMin = new Vector3d();
+            Vector3d boundsMax = new Vector3d();
+            for (GameObjectType type : GameObjectType.values()) {
+                if (type.layer != RenderQueue.Layer.STATIC) continue;
+                ObjectData data = new ObjectData();
+                ArrayList<? extends GameObject> list = simulation.getGameObjects().get(type);
+                if (list != null) {
+                    data.set(list, boundsMin, boundsMax);
+                }
+                objects.put(type, data);
+            }
+        }
+    }
+
+    // The number of levels loaded when this snapshot was taken (see LevelScene.loadLevel())
+    public int generation;
+    public Level level;
+    public StaticObjects staticObjects;
+    public int staticRevision;
+    // Whether the game objects of each type (indexed by ordinal) are in the level (colored walls are removed when their ball reaches its goal)
+    public final boolean[] present;
+    // The game objects that move, by type
+    public final EnumMap<GameObjectType, ObjectData> movingObjects;
+
+    public final Vector3d previousRotation;
+    public final Vector3d rotation;
+    public final SimulationClock clock;
+    // System.nanoTime() when the snapshot was taken, and the time between updates
+    public long time;
+    public long nsPerUpdate;
+
+    public boolean hasWon;
+    public boolean hasDied;
+    public int stopwatchFrame;
+
+    public LevelSnapshot() {
+        present = new boolean[GameObjectType.values().length];
+        movingObjects = new EnumMap<>(GameObjectType.class);
+        for (GameObjectType type : GameObjectType.values()) {
+            if (type.layer != RenderQueue.Layer.STATIC) {
+                movingObjects.put(type, new ObjectData());
+            }
+        }
+        previousRotation = new Vector3d();
+        rotation = new Vector3d();
+        clock = new SimulationClock();
+    }
+}
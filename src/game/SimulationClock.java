@@ -0,0 +1,63 @@
+package game;
+
+/**
+ * Decides how many fixed physics steps to run on each update, so that the game speed can be changed
+ * without changing how often everything else (input, UI timers, audio) is updated.
+ *
+ * Also turns the fraction of an update that a frame is drawn at into the fraction between the
+ * physics states that moving objects should be interpolated between
+ */
+public class SimulationClock {
+    private double speed;
+    // The number of physics steps that are owed but not run yet (always less than 1 after advance())
+    private double accumulator;
+    // The number of physics steps run by the last update that ran any
+    private int lastSteps;
+
+    public SimulationClock() {
+        speed = 1;
+        lastSteps = 1;
+    }
+
+    /**
+     * Copies the state of another clock
+     */
+    public void set(SimulationClock clock) {
+        speed = clock.speed;
+        accumulator = clock.accumulator;
+        lastSteps = clock.lastSteps;
+    }
+
+    /**
+     * @param value the number of physics steps per update (1 is normal speed)
+     */
+    public void setSpeed(double value) {
+        speed = value;
+    }
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Advances the clock by one update
+     * @return the number of physics steps to run during this update
+     */
+    public int advance() {
+        accumulator += speed;
+        int steps = (int)accumulator;
+        accumulator -= steps;
+        if (steps > 0) {
+            lastSteps = steps;
+        }
+        return steps;
+    }
+
+    /**
+     * Gets how far a frame is between the positions saved before the last update that ran any physics steps,
+     * and the current positions
+     * @param alpha how far the frame is between the last update and the next
+     */
+    public double interpolation(double alpha) {
+        return Math.min(1, (accumulator + alpha*speed) / lastSteps);
+    }
+}
@@ -0,0 +1,296 @@
+package game;
+
+import audio.AudioHandler;
+import org.joml.Vector3d;
+import util.TripleBuffer;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static math.MathUtil.cutMaxMin;
+
+/**
+ * Runs a LevelSimulation on its own thread at a fixed rate, so that slow frames don't delay the physics.
+ *
+ * After every update, the state needed to render the simulation is copied into a LevelSnapshot,
+ * which is handed to the rendering thread through a TripleBuffer. Everything else is sent to the
+ * simulation as commands, which are run at the start of the next update
+ */
+public class SimulationThread implements Runnable {
+    // Updates per second (the rate the simulation was tuned for)
+    private static final int UPDATE_RATE = 144;
+
+    private final LevelSimulation simulation;
+    private final SimulationClock clock;
+    private final FrameScheduler scheduler;
+    private final TripleBuffer<LevelSnapshot> snapshots;
+    private final ConcurrentLinkedQueue<Runnable> commands;
+    private final Thread thread;
+    private volatile boolean isRunning;
+    private volatile Throwable failure;
+
+    // The mouse position, written by the thread that polls input
+    private volatile double mouseX;
+    private volatile double mouseY;
+
+    // Only used by the simulation thread
+    private final AudioHandler audioHandler;
+    private final ArrayList<BallAudio> ballAudio;
+    private final Vector3d rotation;
+    private final Vector3d previousRotation;
+    private final Vector3d boundsMin;
+    private final Vector3d boundsMax;
+    private final ContinuousFrameTimer previewRotation;
+    private final ContinuousFrameTimer mainMenuVelocity;
+    private LevelSnapshot.StaticObjects staticObjects;
+    private int generation;
+    private boolean isPaused;
+    private boolean inPreviewMode;
+    private boolean inMainMenuMode;
+
+    public SimulationThread(AudioHandler audioHandler) {
+        this.audioHandler = audioHandler;
+        simulation = new LevelSimulation();
+        clock = new SimulationClock();
+        scheduler = new FrameScheduler(UPDATE_RATE, UPDATE_RATE);
+        snapshots = new TripleBuffer<>(LevelSnapshot::new);
+        commands = new ConcurrentLinkedQueue<>();
+        ballAudio = new ArrayList<>();
+        rotation = new Vector3d();
+        previousRotation = new Vector3d();
+        boundsMin = new Vector3d();
+        boundsMax = new Vector3d();
+        previewRotation = new ContinuousFrameTimer(576);
+        mainMenuVelocity = new ContinuousFrameTimer(576);
+        thread = new Thread(this, "simulation");
+        // Doesn't keep the game open if the main thread exits without stopping it
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        isRunning = true;
+        thread.start();
+    }
+
+    /**
+     * Stops the thread, waits for it to finish, and frees the simulation's sounds
+     */
+    public void stop() {
+        isRunning = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (BallAudio audio : ballAudio) {
+            audio.delete();
+        }
+    }
+
+    /**
+     * Throws the exception that stopped the simulation thread, if any
+     */
+    public void checkFailure() {
+        if (failure != null) {
+            throw new RuntimeException("The simulation thread failed", failure);
+        }
+    }
+
+    /**
+     * @return the most recent snapshot. Stays valid until the next call (which must be made from the same thread)
+     */
+    public LevelSnapshot acquireSnapshot() {
+        return snapshots.acquire();
+    }
+
+    public void setMousePosition(double x, double y) {
+        mouseX = x;
+        mouseY = y;
+    }
+
+    /**
+     * Loads a level
+     * @param generation the number of levels loaded so far; snapshots of this level carry it
+     */
+    public void loadLevel(Level level, int generation) {
+        commands.add(() -> {
+            simulation.loadLevel(level);
+            staticObjects = new LevelSnapshot.StaticObjects(simulation);
+            this.generation = generation;
+            attachBallAudio();
+        });
+    }
+    public void setPaused(boolean value) {
+        commands.add(() -> isPaused = value);
+    }
+
+    /**
+     * @param value the number of physics steps per update (1 is normal speed)
+     */
+    public void setGameSpeed(double value) {
+        commands.add(() -> clock.setSpeed(value));
+    }
+
+    /**
+     * Continuously rotates the level, as in the level select menu
+     */
+    public void enterPreviewMode() {
+        commands.add(() -> {
+            previewRotation.start();
+            inMainMenuMode = false;
+            inPreviewMode = true;
+            rotation.set(0, 0, 0);
+        });
+    }
+
+    /**
+     * Undoes everything done by enterPreviewMode() and enterMainMenuMode()
+     */
+    public void enterLevelMode() {
+        commands.add(() -> {
+            previewRotation.stop();
+            inPreviewMode = false;
+            inMainMenuMode = false;
+            rotation.z = 0;
+        });
+    }
+
+    /**
+     * Continuously spawns balls that move downwards, as in the main menu
+     */
+    public void enterMainMenuMode() {
+        commands.add(() -> {
+            previewRotation.stop();
+            rotation.z = 0;
+            inPreviewMode = false;
+            inMainMenuMode = true;
+        });
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (isRunning) {
+                for (int i = scheduler.takeUpdates(System.nanoTime()); i > 0 && isRunning; i--) {
+                    update();
+                }
+                scheduler.waitForNextUpdate();
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Runs the commands sent since the last update, advances the simulation, and publishes a snapshot of it
+     */
+    private void update() {
+        for (Runnable command = commands.poll(); command != null; command = commands.poll()) {
+            command.run();
+        }
+        if (simulation.getLevel() == null) return;
+
+        previousRotation.set(rotation);
+        if (inMainMenuMode) {
+            if (isPaused) {
+                simulation.savePreviousPositions();
+            } else {
+                int steps = clock.advance();
+                if (steps > 0) {
+                    simulation.savePreviousPositions();
+                }
+                for (int i = 0; i < steps; i++) {
+                    updateMainMenuBalls();
+                }
+            }
+        } else if (inPreviewMode) {
+            // Continuously rotate the level
+            rotation.z = previewRotation.percentage() * 2 * Math.PI;
+            previewRotation.update();
+        } else {
+            // Calculate rotation based on mouse position
+            rotation.x = (cutMaxMin(mouseY*1.2 - 0.1, 0, 1)-0.5) * Math.PI/3;
+            rotation.y = (cutMaxMin(mouseX*1.2 - 0.1, 0, 1)-0.5) * Math.PI/3;
+            if (rotation.length() > Math.PI/6) {
+                rotation.normalize(Math.PI/6);
+            }
+
+            if (isPaused) {
+                simulation.savePreviousPositions();
+            } else {
+                int steps = clock.advance();
+                if (steps > 0) {
+                    simulation.savePreviousPositions();
+                }
+                for (int i = 0; i < steps; i++) {
+                    simulation.step(rotation);
+                }
+            }
+        }
+
+        writeSnapshot(snapshots.getBack());
+        snapshots.publish();
+    }
+
+    /**
+     * Runs one physics step of the main menu, where balls continuously spawn and move downwards
+     */
+    private void updateMainMenuBalls() {
+        mainMenuVelocity.update();
+        mainMenuVelocity.start();
+        for (Ball ball : simulation.getBalls()) {
+            if (ball.isDead()) {
+                ball.setIsDead(false);
+                ball.velocity.set(Math.random()*0.01, Math.random()*0.01, 0);
+                ball.geometry.position.set(-0.5 - Math.random(), 3.35, 0.35);
+            }
+
+            ball.velocity.x -= 0.00004 * Math.sin(2*Math.PI*mainMenuVelocity.percentage());
+            ball.velocity.y -= 0.00005;
+        }
+        simulation.setRotation(rotation);
+        simulation.updateBalls();
+    }
+
+    private void writeSnapshot(LevelSnapshot snapshot) {
+        snapshot.generation = generation;
+        snapshot.level = simulation.getLevel();
+        snapshot.staticObjects = staticObjects;
+        snapshot.staticRevision = simulation.getStaticRevision();
+        for (GameObjectType type : GameObjectType.values()) {
+            ArrayList<? extends GameObject> objects = simulation.getGameObjects().get(type);
+            snapshot.present[type.ordinal()] = objects != null && !objects.isEmpty();
+            LevelSnapshot.ObjectData data = snapshot.movingObjects.get(type);
+            if (data != null) {
+                if (objects != null) {
+                    data.set(objects, boundsMin, boundsMax);
+                } else {
+                    data.count = 0;
+                }
+            }
+        }
+        snapshot.previousRotation.set(previousRotation);
+        snapshot.rotation.set(rotation);
+        snapshot.clock.set(clock);
+        snapshot.time = System.nanoTime();
+        snapshot.nsPerUpdate = scheduler.getNsPerUpdate();
+        snapshot.hasWon = simulation.hasWon();
+        snapshot.hasDied = simulation.hasDied();
+        snapshot.stopwatchFrame = simulation.stopwatch.getFrame();
+    }
+
+    /**
+     * Replaces the sounds of the previous level's balls with ones for the current level's balls
+     */
+    private void attachBallAudio() {
+        for (BallAudio audio : ballAudio) {
+            audio.delete();
+        }
+        ballAudio.clear();
+        for (Ball ball : simulation.getBalls()) {
+            BallAudio audio = new BallAudio(audioHandler, simulation.getRotationMatrix());
+            ball.setListener(audio);
+            ballAudio.add(audio);
+        }
+    }
+}
@@ -30,10 +30,12 @@ public class Window {
     public final InputState input;
     private boolean resized;
     private boolean isFullscreen;
+    private boolean isFocused;
+    private boolean isIconified;
     public Window() {
-        input = new InputState();
         width = 1600;
         height = 900;
+        input = new InputState(width, height);
         resized = false;
         glfwDefaultWindowHints();
         glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
@@ -120,37 +122,32 @@ public class Window {
         // Make the window visible
         glfwShowWindow(handle);
 
+        isFocused = true;
+        isIconified = false;
+
         // Add event callbacks
+        glfwSetWindowFocusCallback(handle, (window, focused) -> isFocused = focused);
+        glfwSetWindowIconifyCallback(handle, (window, iconified) -> isIconified = iconified);
         glfwSetFramebufferSizeCallback(handle, (window, width, height) -> {
             this.width = width;
             this.height = height;
             this.resized = true;
+            input.events.add(InputEventRing.RESIZE, 0, 0, width, height, glfwGetTime());
         });
 
-        glfwSetCursorPosCallback(handle, (window, x, y) -> {
-            int minDimension = Math.min(height, width);
-            input.mousePosition.x = (x - (width - minDimension)/2.0) / minDimension;
-            input.mousePosition.y = (y - (height - minDimension)/2.0) / minDimension;
-            input.windowMousePosition.set(x, y);
-        });
+        // Input is queued as events, which are applied to the input state at the start of the next update
+        glfwSetCursorPosCallback(handle, (window, x, y) ->
+                input.events.add(InputEventRing.CURSOR, 0, 0, x, y, glfwGetTime()));
 
-        glfwSetScrollCallback(handle, (window, xOffset, yOffset) -> {
-            if (yOffset > 0) {
-                input.addPressedKey(InputState.SCROLLWHEEL_UP);
-            } else if (yOffset < 0) {
-                input.addPressedKey(InputState.SCROLLWHEEL_DOWN);
-            }
-        });
+        glfwSetScrollCallback(handle, (window, xOffset, yOffset) ->
+                input.events.add(InputEventRing.SCROLL, 0, 0, xOffset, yOffset, glfwGetTime()));
 
-        glfwSetMouseButtonCallback(handle, (window, button, action, mods) -> {
-            if (action == GLFW_PRESS && button == GLFW_MOUSE_BUTTON_LEFT) {
-                input.addPressedKey(InputState.MOUSE_BUTTON_LEFT);
-            }
-        });
+        glfwSetMouseButtonCallback(handle, (window, button, action, mods) ->
+                input.events.add(InputEventRing.MOUSE_BUTTON, button, action, 0, 0, glfwGetTime()));
 
         glfwSetKeyCallback(handle, (window, key, scanCode, action, mods) -> {
+            input.events.add(InputEventRing.KEY, key, action, 0, 0, glfwGetTime());
             if (action == GLFW_PRESS) {
-                input.addPressedKey(key);
                 if (key == GLFW_KEY_F) {
                     isFullscreen = !isFullscreen;
                     glfwSetWindowMonitor(window, isFullscreen ? glfwGetPrimaryMonitor() : NULL, 0, 0, 1600, 900, GLFW_DONT_CARE);
@@ -164,7 +161,6 @@ public class Window {
         return glfwWindowShouldClose(handle);
     }
     public void update() {
-        input.clearPressedKeys();
         glfwPollEvents();
     }
     public long getHandle() {
@@ -174,6 +170,19 @@ public class Window {
         glfwFreeCallbacks(handle);
         glfwDestroyWindow(handle);
     }
+
+    /**
+     * Sets whether swapping buffers waits for the monitor's vertical blank
+     */
+    public void setVsync(boolean value) {
+        glfwSwapInterval(value ? 1 : 0);
+    }
+    public boolean isFocused() {
+        return isFocused;
+    }
+    public boolean isIconified() {
+        return isIconified;
+    }
     public boolean isResized() {
         return resized;
     }
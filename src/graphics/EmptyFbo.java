@@ -1,42 +1,99 @@
 package graphics;
 
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.IntBuffer;
+
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.glDrawBuffers;
+import static org.lwjgl.opengl.GL30.*;
 
 /**
  * An FBO that is empty.
  * This is meant to be written to for use in shaders
  */
 public class EmptyFbo extends FrameBufferObject {
-    private final Texture colorTexture;
+    private final Texture[] colorTextures;
     private final Texture depthTexture;
+    private int width;
+    private int height;
     public EmptyFbo(int width, int height) {
+        this(width, height, 1);
+    }
+
+    /**
+     * @param colorAttachments the number of color textures to draw to at once
+     *                         (fragment shader output n is written to color texture n)
+     */
+    public EmptyFbo(int width, int height, int colorAttachments) {
         super();
         bind();
-        colorTexture = new Texture();
+        colorTextures = new Texture[colorAttachments];
+        for (int i = 0; i < colorAttachments; i++) {
+            colorTextures[i] = new Texture();
+        }
         depthTexture = new Texture();
         resize(width, height);
+        setDrawBuffers();
+    }
+
+    private void setDrawBuffers() {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer drawBuffers = stack.mallocInt(colorTextures.length);
+            for (int i = 0; i < colorTextures.length; i++) {
+                drawBuffers.put(i, GL_COLOR_ATTACHMENT0 + i);
+            }
+            glDrawBuffers(drawBuffers);
+        }
     }
 
     public Texture getColorTexture() {
-        return colorTexture;
+        return colorTextures[0];
+    }
+    public Texture getColorTexture(int index) {
+        return colorTextures[index];
     }
     public Texture getDepthTexture() {
         return depthTexture;
     }
 
+    /**
+     * Copies every color texture and the depth texture into another EmptyFbo of the same size and number of color textures.
+     * Leaves the default framebuffer bound
+     */
+    public void copyTo(EmptyFbo target) {
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, getId());
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, target.getId());
+        for (int i = 0; i < colorTextures.length; i++) {
+            glReadBuffer(GL_COLOR_ATTACHMENT0 + i);
+            glDrawBuffer(GL_COLOR_ATTACHMENT0 + i);
+            glBlitFramebuffer(0, 0, width, height, 0, 0, width, height, GL_COLOR_BUFFER_BIT, GL_NEAREST);
+        }
+        glBlitFramebuffer(0, 0, width, height, 0, 0, width, height, GL_DEPTH_BUFFER_BIT, GL_NEAREST);
+        glReadBuffer(GL_COLOR_ATTACHMENT0);
+        target.setDrawBuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    }
+
     /**
      * Changes the dimensions of the texture
      * @param width the new width
      * @param height the new height
      */
     public void resize(int width, int height) {
-        colorTexture.bind();
-        colorTexture.setEmptyImage(width, height, GL_RGBA, GL_RGBA, GL_FLOAT);
+        this.width = width;
+        this.height = height;
+        for (Texture colorTexture : colorTextures) {
+            colorTexture.bind();
+            colorTexture.setEmptyImage(width, height, GL_RGBA, GL_RGBA, GL_FLOAT);
+        }
         depthTexture.bind();
         depthTexture.setEmptyImage(width, height, GL_DEPTH_COMPONENT, GL_DEPTH_COMPONENT, GL_UNSIGNED_BYTE);
         Texture.unbind();
 
-        attachColorTexture(colorTexture);
+        for (int i = 0; i < colorTextures.length; i++) {
+            attachColorTexture(colorTextures[i], i);
+        }
         attachDepthTexture(depthTexture);
     }
 
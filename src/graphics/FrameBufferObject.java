@@ -3,6 +3,8 @@ package graphics;
 import org.lwjgl.opengl.GL30;
 import util.Deletable;
 
+import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
+import static org.lwjgl.opengl.GL11.GL_NEAREST;
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
 import static org.lwjgl.opengl.GL30.GL_DEPTH_ATTACHMENT;
 import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER;
@@ -17,6 +19,9 @@ public class FrameBufferObject implements Deletable {
     public FrameBufferObject() {
         id = glGenFramebuffers();
     }
+    public int getId() {
+        return id;
+    }
     public void bind() {
         glBindFramebuffer(GL_FRAMEBUFFER, id);
     }
@@ -26,9 +31,22 @@ public class FrameBufferObject implements Deletable {
     public void attachColorTexture(Texture texture) {
         glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, texture.getId(), 0);
     }
+    public void attachColorTexture(Texture texture, int index) {
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0 + index, GL_TEXTURE_2D, texture.getId(), 0);
+    }
     public void attachDepthTexture(Texture texture) {
         glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, texture.getId(), 0);
     }
+
+    /**
+     * Copies this FBO's depth into another FBO with a depth attachment of the same size and format
+     */
+    public void blitDepthTo(FrameBufferObject target, int width, int height) {
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, id);
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, target.id);
+        glBlitFramebuffer(0, 0, width, height, 0, 0, width, height, GL_DEPTH_BUFFER_BIT, GL_NEAREST);
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    }
     public boolean isComplete() {
         return glCheckFramebufferStatus(GL_FRAMEBUFFER) == GL30.GL_FRAMEBUFFER_COMPLETE;
     }
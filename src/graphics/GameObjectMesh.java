@@ -1,9 +1,20 @@
 package graphics;
 
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+
 /**
  * Represents the mesh of a game object
  */
 public class GameObjectMesh extends Mesh {
+    /**
+     * The number of floats per instance: a world matrix (attributes 3-6), then color0 (7) and color1 (8)
+     */
+    public static final int INSTANCE_SIZE = 24;
+
+    private final StreamingBuffer instances;
+    private int instanceCount;
 
     public GameObjectMesh(float[] vertices, float[] normals, float[] colors, int[] indices) {
         super();
@@ -12,8 +23,48 @@ public class GameObjectMesh extends Mesh {
         vao.createFloatVBO(0, 3, vertices);
         vao.createFloatVBO(1, 3, normals);
         vao.createFloatVBO(2, 3, colors);
+        instances = new StreamingBuffer(GL_ARRAY_BUFFER, INSTANCE_SIZE);
+        vao.createInstanceAttributes(instances, 3, 16, 4, 4);
         vao.createEBO(indices);
 
         vao.unbind();
     }
+
+    /**
+     * Gets a buffer to write the per-instance attributes into, INSTANCE_SIZE floats per instance.
+     * The buffer is reused between frames, so it should not be held onto
+     * @param count the number of instances
+     */
+    public FloatBuffer instanceBuffer(int count) {
+        return instances.stage(count*INSTANCE_SIZE);
+    }
+
+    /**
+     * Uploads the first count instances of the buffer returned by instanceBuffer() for use by renderInstanced()
+     */
+    public void updateInstances(int count) {
+        instanceCount = count;
+        if (count > 0) {
+            instances.upload(count*INSTANCE_SIZE);
+        }
+    }
+
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    /**
+     * Renders every instance uploaded by the last call to updateInstances(), leaving the mesh's vertex array bound
+     */
+    public void drawInstances() {
+        if (instanceCount > 0) {
+            drawInstanced(instanceCount);
+        }
+    }
+
+    @Override
+    public void delete() {
+        super.delete();
+        instances.delete();
+    }
 }
@@ -26,10 +26,20 @@ public class Mesh implements Deletable {
      * Render this mesh using instancing
      */
     public void renderInstanced(int count) {
+        drawInstanced(count);
+        vao.unbind();
+    }
+
+    /**
+     * Render this mesh using instancing, leaving its vertex array bound
+     * (for drawing many meshes in a row without unbinding in between)
+     */
+    public void drawInstanced(int count) {
         vao.bind();
-        glBindVertexArray(vao.getId());
         glDrawElementsInstanced(GL_TRIANGLES, vao.getEboSize(), GL_UNSIGNED_INT, 0, count);
-        vao.unbind();
+    }
+    public int getVertexArrayId() {
+        return vao.getId();
     }
     public void delete() {
         vao.delete();
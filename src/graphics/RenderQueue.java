@@ -0,0 +1,96 @@
+package graphics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+
+/**
+ * The draw calls of a frame. Built once per frame, then drawn (in parts) by every render pass.
+ *
+ * Draw calls are sorted by layer, so that a pass draws one contiguous range of them,
+ * and then by vertex array, so that the order is the same every frame
+ */
+public class RenderQueue {
+    /**
+     * The groups that draw calls are sorted into, in the order they are drawn
+     */
+    public enum Layer {
+        // Opaque objects that don't move relative to the level
+        STATIC,
+        // Opaque objects that move
+        DYNAMIC,
+        // Objects that can be translucent; these are blended over everything else, so they are drawn last
+        TRANSLUCENT
+    }
+
+    private static class Item {
+        private GameObjectMesh mesh;
+        private Layer layer;
+    }
+
+    private static final Comparator<Item> ORDER = Comparator
+            .comparingInt((Item item) -> item.layer.ordinal())
+            .thenComparingInt(item -> item.mesh.getVertexArrayId());
+
+    private Item[] items;
+    private int size;
+    // The index of the first item of each layer; the last element is the number of items
+    private final int[] layerStart;
+
+    public RenderQueue() {
+        items = new Item[16];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new Item();
+        }
+        layerStart = new int[Layer.values().length + 1];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Queues every instance of a mesh that was uploaded by its last call to updateInstances()
+     */
+    public void add(GameObjectMesh mesh, Layer layer) {
+        if (mesh.getInstanceCount() == 0) return;
+        if (size == items.length) {
+            items = Arrays.copyOf(items, 2*size);
+            for (int i = size; i < items.length; i++) {
+                items[i] = new Item();
+            }
+        }
+        items[size].mesh = mesh;
+        items[size].layer = layer;
+        size++;
+    }
+
+    /**
+     * Sorts the queue. Must be called after the last call to add() and before the first call to render()
+     */
+    public void sort() {
+        Arrays.sort(items, 0, size, ORDER);
+        int layer = 0;
+        for (int i = 0; i < size; i++) {
+            while (layer <= items[i].layer.ordinal()) {
+                layerStart[layer++] = i;
+            }
+        }
+        while (layer < layerStart.length) {
+            layerStart[layer++] = size;
+        }
+    }
+
+    /**
+     * Draws every item in a range of layers with the currently bound shader
+     * @param first the first layer to draw
+     * @param last the last layer to draw (inclusive)
+     */
+    public void render(Layer first, Layer last) {
+        for (int i = layerStart[first.ordinal()]; i < layerStart[last.ordinal() + 1]; i++) {
+            items[i].mesh.drawInstances();
+        }
+        glBindVertexArray(0);
+    }
+}
@@ -19,6 +19,8 @@ public class ShaderProgram implements Deletable {
     private final int id;
     private final ArrayList<Shader> shaders;
     private final HashMap<String, Integer> uniforms;
+    // Reused by setUniform(String, ArrayList<Matrix4f>) so that uploading arrays does not allocate every frame
+    private FloatBuffer arrayBuffer;
 
     public ShaderProgram() {
         id = glCreateProgram();
@@ -117,13 +119,16 @@ public class ShaderProgram implements Deletable {
         glUniform1fv(uniforms.get(name), buffer);
     }
     public void setUniform(String name, ArrayList<Matrix4f> values) {
-        FloatBuffer buffer = MemoryUtil.memAllocFloat(16*values.size());
+        int size = 16*values.size();
+        if (arrayBuffer == null || arrayBuffer.capacity() < size) {
+            arrayBuffer = MemoryUtil.memRealloc(arrayBuffer, Math.max(size, arrayBuffer == null ? 0 : 2*arrayBuffer.capacity()));
+        }
+        arrayBuffer.clear();
         for (int i = 0; i < values.size(); i++) {
-            values.get(i).get(i*16, buffer);
+            values.get(i).get(i*16, arrayBuffer);
         }
-        buffer.flip();
-        glUniformMatrix4fv(uniforms.get(name), false, buffer);
-        MemoryUtil.memFree(buffer);
+        arrayBuffer.limit(size);
+        glUniformMatrix4fv(uniforms.get(name), false, arrayBuffer);
     }
     public void setUniform(String name, Matrix4f value) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
@@ -179,5 +184,6 @@ public class ShaderProgram implements Deletable {
             shader.delete();
         }
         glDeleteProgram(id);
+        MemoryUtil.memFree(arrayBuffer);
     }
 }
@@ -1,14 +1,29 @@
 package graphics;
 
 import org.joml.Matrix4f;
+import org.joml.Vector3d;
 import org.joml.Vector3f;
 import util.Deletable;
 
+import static org.lwjgl.opengl.GL11.*;
+
 /**
- * Represents a shadow map (uses an orthographic projection)
+ * Represents a shadow map (uses an orthographic projection).
+ *
+ * The depths of objects that don't move are rendered into a separate map that is cached until the level's rotation,
+ * the light, or the set of static objects changes. Every frame, that map is copied into depthMap
+ * and only the moving objects are rendered on top of it
  */
 public class ShadowMap implements Deletable {
+    // The amount the level's rotation can change by (in radians) before the static depths are rendered again.
+    // Much smaller than the angle that would move a shadow by one texel
+    private static final double ROTATION_EPSILON = 0.0001;
+
     public final DepthMapFbo depthMap;
+    private final DepthMapFbo staticDepthMap;
+    private final Vector3d staticRotation;
+    private int staticRevision;
+    private boolean isStaticValid;
     public final Matrix4f lightProjection;
     public final Matrix4f lightView;
     public final Matrix4f lightSpaceMatrix;
@@ -25,6 +40,8 @@ public class ShadowMap implements Deletable {
         this.nearPlane = nearPlane;
         this.farPlane = farPlane;
         depthMap = new DepthMapFbo(width, height);
+        staticDepthMap = new DepthMapFbo(width, height);
+        staticRotation = new Vector3d();
         lightProjection = new Matrix4f();
         lightView = new Matrix4f();
         lightSpaceMatrix = new Matrix4f();
@@ -57,6 +74,40 @@ public class ShadowMap implements Deletable {
     public void updateLightSpaceMatrix() {
         lightProjection.setOrtho(-radius, radius, -radius, radius, nearPlane, farPlane);
         lightSpaceMatrix.set(lightProjection).mul(lightView);
+        isStaticValid = false;
+    }
+
+    /**
+     * Prepares to render the depths of the objects that don't move, if the cached depths are out of date.
+     * Binds the static depth map and clears it in that case
+     * @param rotation the rotation of the level
+     * @param revision a number that changes whenever the set of static objects changes
+     * @return true if the static objects should be rendered; false if the cached depths can be used
+     */
+    public boolean beginStatic(Vector3d rotation, int revision) {
+        if (isStaticValid && revision == staticRevision
+                && Math.abs(rotation.x - staticRotation.x) <= ROTATION_EPSILON
+                && Math.abs(rotation.y - staticRotation.y) <= ROTATION_EPSILON
+                && Math.abs(rotation.z - staticRotation.z) <= ROTATION_EPSILON) {
+            return false;
+        }
+        isStaticValid = true;
+        staticRevision = revision;
+        staticRotation.set(rotation);
+
+        staticDepthMap.bind();
+        glViewport(0, 0, width, height);
+        glClear(GL_DEPTH_BUFFER_BIT);
+        return true;
+    }
+
+    /**
+     * Starts depthMap off with the static depths, and binds it so that moving objects can be rendered on top
+     */
+    public void beginDynamic() {
+        staticDepthMap.blitDepthTo(depthMap, width, height);
+        depthMap.bind();
+        glViewport(0, 0, width, height);
     }
     public int getWidth() {
         return width;
@@ -64,7 +115,15 @@ public class ShadowMap implements Deletable {
     public int getHeight() {
         return height;
     }
+
+    /**
+     * @return the width of the area of the world covered by one texel of the shadow map
+     */
+    public float getTexelSize() {
+        return 2*radius / width;
+    }
     public void delete() {
         depthMap.delete();
+        staticDepthMap.delete();
     }
 }
@@ -0,0 +1,70 @@
+package graphics;
+
+import org.lwjgl.system.MemoryUtil;
+import util.Deletable;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * A GL buffer whose contents are rewritten every frame.
+ *
+ * Values are written into an off-heap staging buffer that is kept between frames (and only grows),
+ * then uploaded by orphaning the GL buffer's storage, so that the driver can hand out new memory
+ * instead of waiting for draw calls that still read the previous frame's contents
+ */
+public class StreamingBuffer implements Deletable {
+    private final int target;
+    private final int id;
+    private FloatBuffer staging;
+    private long capacity;
+
+    /**
+     * @param target the buffer's binding target (e.g. GL_ARRAY_BUFFER)
+     * @param initialSize the number of floats to allocate room for
+     */
+    public StreamingBuffer(int target, int initialSize) {
+        this.target = target;
+        id = glGenBuffers();
+        staging = MemoryUtil.memAllocFloat(Math.max(1, initialSize));
+        capacity = 0;
+    }
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the staging buffer to write the next upload into. Should not be held onto, since it is reallocated when it grows
+     * @param size the number of floats that will be written
+     * @return the staging buffer, with its position at 0
+     */
+    public FloatBuffer stage(int size) {
+        if (staging.capacity() < size) {
+            staging = MemoryUtil.memRealloc(staging, Math.max(size, 2*staging.capacity()));
+        }
+        staging.clear();
+        return staging;
+    }
+
+    /**
+     * Uploads the first size floats of the staging buffer to the GL buffer
+     */
+    public void upload(int size) {
+        staging.limit(size);
+        glBindBuffer(target, id);
+        long bytes = (long)size * Float.BYTES;
+        if (bytes > capacity) {
+            capacity = Math.max(bytes, 2*capacity);
+        }
+        // Orphan the old storage, then fill the new storage
+        glBufferData(target, capacity, GL_STREAM_DRAW);
+        glBufferSubData(target, 0, staging);
+        glBindBuffer(target, 0);
+    }
+
+    public void delete() {
+        glDeleteBuffers(id);
+        MemoryUtil.memFree(staging);
+    }
+}
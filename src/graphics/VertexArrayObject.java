@@ -8,6 +8,7 @@ import java.nio.IntBuffer;
 import java.util.ArrayList;
 
 import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
 
 /**
  * Describes how vertex attributes are stored
@@ -52,6 +53,34 @@ public class VertexArrayObject implements Deletable {
         glBindBuffer(GL_ARRAY_BUFFER, 0);
     }
 
+    /**
+     * Use a streaming buffer for attributes that advance once per instance instead of once per vertex.
+     * The buffer is not deleted along with this VAO
+     * @param buffer the buffer holding the attributes
+     * @param index the index of the first attribute
+     * @param sizes the number of floats in each attribute of an instance. Attributes larger than 4 floats (matrices)
+     *              take up one index for every 4 floats
+     */
+    public void createInstanceAttributes(StreamingBuffer buffer, int index, int... sizes) {
+        int stride = 0;
+        for (int size : sizes) {
+            stride += size;
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, buffer.getId());
+        int offset = 0;
+        for (int size : sizes) {
+            for (int column = 0; column < size; column += 4) {
+                int columnSize = Math.min(4, size - column);
+                glEnableVertexAttribArray(index);
+                glVertexAttribPointer(index, columnSize, GL_FLOAT, false, stride*Float.BYTES, (long)offset*Float.BYTES);
+                glVertexAttribDivisor(index, 1);
+                index++;
+                offset += columnSize;
+            }
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
     /**
      * Create an element buffer object from an array
      */
@@ -1,6 +1,5 @@
 package math;
 
-import org.joml.Matrix3d;
 import org.joml.Vector2d;
 import org.joml.Vector3d;
 import shape.*;
@@ -36,15 +35,16 @@ public class Geometry {
      * @param restitution the ratio between the initial and final "velocity" of the line after hitting the surface
      */
     public static void reflectLine(Line3d line, Vector3d intersection, Vector3d normal, double restitution) {
-        Vector3d normalComponent = new Vector3d();
-        project(line.displacement, normal, normalComponent);
+        // Project line.displacement onto the normal (component-wise to avoid allocating a vector)
+        double k = line.displacement.dot(normal) / normal.lengthSquared();
+        double x = normal.x*k, y = normal.y*k, z = normal.z*k;
 
         // Nullify the rebound if it is small
-        if (normalComponent.length()*restitution <= 0.0018) {
+        if (Vector3d.length(x, y, z)*restitution <= 0.0018) {
             restitution = 0;
         }
 
-        line.displacement.sub(normalComponent.mul(1 + restitution));
+        line.displacement.sub(x*(1 + restitution), y*(1 + restitution), z*(1 + restitution));
         line.position.set(intersection);
     }
 
@@ -56,9 +56,10 @@ public class Geometry {
      * @param reboundVelocity the velocity of the line after hitting the surface
      */
     public static void reflectLineFixedRebound(Line3d line, Vector3d intersection, Vector3d normal, double reboundVelocity) {
-        Vector3d normalComponent = new Vector3d();
-        project(line.displacement, normal, normalComponent);
-        line.displacement.sub(normalComponent.mul(1 + reboundVelocity/normalComponent.length()));
+        double k = line.displacement.dot(normal) / normal.lengthSquared();
+        double x = normal.x*k, y = normal.y*k, z = normal.z*k;
+        double factor = 1 + reboundVelocity/Vector3d.length(x, y, z);
+        line.displacement.sub(x*factor, y*factor, z*factor);
         line.position.set(intersection);
     }
 
@@ -92,19 +93,26 @@ public class Geometry {
      * Sets t to -1 if there is no intersection.
      */
     public static void intersectionLinePlaneTUV(Line3d line, Plane plane, Vector3d result) {
+        intersectionLinePlaneTUV(line, plane, result, new GeometryScratch());
+    }
+
+    /**
+     * Allocation-free version of intersectionLinePlaneTUV(line, plane, result)
+     */
+    public static void intersectionLinePlaneTUV(Line3d line, Plane plane, Vector3d result, GeometryScratch scratch) {
         if (line.displacement.lengthSquared() == 0) {
             result.x = -1;
             return;
         }
         // set t = (plane.d1 × plane.d2) • (line.pos - plane.pos) / -line.d • (plane.d1 × plane.d2)
-        Vector3d r = new Vector3d();
+        Vector3d r = scratch.vector1;
         plane.displacement1.cross(plane.displacement2, r);
 
-        Vector3d posDifference = new Vector3d();
+        Vector3d posDifference = scratch.vector2;
         line.position.sub(plane.position, posDifference); // line.pos - plane.pos
 
         double t = r.dot(posDifference);
-        Vector3d lineNegative = new Vector3d();
+        Vector3d lineNegative = scratch.vector3;
         line.displacement.negate(lineNegative);
         double denom = lineNegative.dot(r);
         t /= denom;
@@ -130,8 +138,15 @@ public class Geometry {
      * @return the POI's distance along the line; -1 if there is no intersection
      */
     public static double intersectionLinePlaneTriangle(Line3d line, Plane plane) {
-        Vector3d result = new Vector3d();
-        intersectionLinePlaneTUV(line, plane, result);
+        return intersectionLinePlaneTriangle(line, plane, new GeometryScratch());
+    }
+
+    /**
+     * Allocation-free version of intersectionLinePlaneTriangle(line, plane)
+     */
+    public static double intersectionLinePlaneTriangle(Line3d line, Plane plane, GeometryScratch scratch) {
+        Vector3d result = scratch.tuv;
+        intersectionLinePlaneTUV(line, plane, result, scratch);
         double t = result.x, u = result.y, v = result.z;
         if (t < 0 || t > 1 || u < 0 || u > 1 || v < 0 || v > 1 || (u+v) > 1) {
             return -1;
@@ -147,13 +162,27 @@ public class Geometry {
         return scaleLine(line, intersectionLinePlaneTriangle(line, plane), result);
     }
 
+    /**
+     * Allocation-free version of intersectionLinePlaneTriangle(line, plane, result)
+     */
+    public static boolean intersectionLinePlaneTriangle(Line3d line, Plane plane, Vector3d result, GeometryScratch scratch) {
+        return scaleLine(line, intersectionLinePlaneTriangle(line, plane, scratch), result);
+    }
+
     /**
      * Finds the intersection between a line and a plane
      * @return the POI's distance along the line; -1 if there is no intersection
      */
     public static double intersectionLinePlane(Line3d line, Plane plane) {
-        Vector3d result = new Vector3d();
-        intersectionLinePlaneTUV(line, plane, result);
+        return intersectionLinePlane(line, plane, new GeometryScratch());
+    }
+
+    /**
+     * Allocation-free version of intersectionLinePlane(line, plane)
+     */
+    public static double intersectionLinePlane(Line3d line, Plane plane, GeometryScratch scratch) {
+        Vector3d result = scratch.tuv;
+        intersectionLinePlaneTUV(line, plane, result, scratch);
         double t = result.x, u = result.y, v = result.z;
         if (t < 0 || t > 1 || u < 0 || u > 1 || v < 0 || v > 1) {
             return -1;
@@ -170,56 +199,63 @@ public class Geometry {
         return scaleLine(line, intersectionLinePlane(line, plane), result);
     }
 
+    /**
+     * Allocation-free version of intersectionLinePlane(line, plane, result)
+     */
+    public static boolean intersectionLinePlane(Line3d line, Plane plane, Vector3d result, GeometryScratch scratch) {
+        return scaleLine(line, intersectionLinePlane(line, plane, scratch), result);
+    }
+
     /**
      * Finds the intersection between a line and a cylinder
      * @return the POI's distance along the line
      */
     public static double intersectionLineCylinder(Line3d line, Cylinder cylinder) {
-        if (line.displacement.lengthSquared() == 0) {
+        return intersectionLineCylinder(line, cylinder, new GeometryScratch());
+    }
+
+    /**
+     * Allocation-free version of intersectionLineCylinder(line, cylinder)
+     */
+    public static double intersectionLineCylinder(Line3d line, Cylinder cylinder, GeometryScratch scratch) {
+        CylinderFrame frame = scratch.cylinderFrame;
+        frame.set(cylinder);
+        return intersectionLineCylinder(line, frame);
+    }
+
+    /**
+     * Finds the intersection between a line and a cylinder whose frame has already been computed
+     * (works for any axis, and does not allocate)
+     * @return the POI's distance along the line
+     */
+    public static double intersectionLineCylinder(Line3d line, CylinderFrame cylinder) {
+        // Express the line in the cylinder's frame
+        double wx = line.position.x - cylinder.position.x;
+        double wy = line.position.y - cylinder.position.y;
+        double wz = line.position.z - cylinder.position.z;
+        Vector3d d = line.displacement;
+        double wu = cylinder.u.dot(wx, wy, wz), du = cylinder.u.dot(d);
+        double wv = cylinder.v.dot(wx, wy, wz), dv = cylinder.v.dot(d);
+
+        // Find the intersection of the line and the cylinder, when both are projected onto the plane perpendicular to the axis
+        double a = du*du + dv*dv;
+        if (a == 0) {
             return -1;
         }
-        // Rotate everything such that the cylinder's axis lies on the z-axis
-        // Only works for cylinders that are aligned to the X axis, Y axis, Z axis, or XY plane (too lazy to figure out the proper way of doing this)
-        Line3d rotatedLine = new Line3d(line);
-        Line3d rotatedCylinderAxis = new Line3d(cylinder.position, cylinder.axis);
-        if (cylinder.axis.z == 0) {
-            Matrix3d rotationMatrix = new Matrix3d();
-            if (cylinder.axis.x == 0) {
-                rotationMatrix.rotationX(Math.PI/2);
-            } else if (cylinder.axis.y == 0) {
-                rotationMatrix.rotationY(Math.PI/2);
-            } else {
-                rotationMatrix.rotationZ(cylinder.axis.angle(new Vector3d(1, 0, 0)));
-                rotationMatrix.rotateY(Math.PI/2);
-            }
-            rotatedLine.position.mul(rotationMatrix);
-            rotatedLine.displacement.mul(rotationMatrix);
-            rotatedCylinderAxis.position.mul(rotationMatrix);
-            rotatedCylinderAxis.displacement.mul(rotationMatrix);
-        }
-
-        // Project the rotated line and cylinder to the XY plane
-        Line2d lineXY = new Line2d(
-                new Vector2d(rotatedLine.position.x, rotatedLine.position.y),
-                new Vector2d(rotatedLine.displacement.x, rotatedLine.displacement.y)
-        );
-        if (lineXY.displacement.lengthSquared() == 0) {
+        double b = 2*(du*wu + dv*wv);
+        double c = wu*wu + wv*wv - cylinder.getRadius()*cylinder.getRadius();
+        double discriminant = b*b - 4*a*c;
+        if (discriminant < 0) {
             return -1;
         }
-        Vector2d cylinderPositionXY = new Vector2d(rotatedCylinderAxis.position.x, rotatedCylinderAxis.position.y);
-        Circle circle = new Circle(cylinder.radius, cylinderPositionXY);
-
-        // Find the intersection of the projected lines and cylinder (now a circle)
-        double t = intersectionLineCircle(lineXY, circle);
-        if (t == -1) {
+        double t = minNonNegativeClipped((-b - Math.sqrt(discriminant)) / (2*a), (-b + Math.sqrt(discriminant)) / (2*a));
+        if (t < 0 || t > 1) {
             return -1;
         }
 
-        // Check if the intersection is on the cylinder (in the z-direction)
-        double intersectionZ = rotatedLine.position.z + t*rotatedLine.displacement.z;
-        double bottom = rotatedCylinderAxis.position.z;
-        double top = bottom + rotatedCylinderAxis.displacement.z;
-        if (!withinRange(intersectionZ, bottom, top)) {
+        // Check if the intersection is on the cylinder (along the axis)
+        double s = cylinder.axis.dot(wx, wy, wz) + t*cylinder.axis.dot(d);
+        if (s < 0 || s > cylinder.getLength()) {
             return -1;
         }
 
@@ -234,16 +270,39 @@ public class Geometry {
         return scaleLine(line, intersectionLineCylinder(line, cylinder), result);
     }
 
+    /**
+     * Allocation-free version of intersectionLineCylinder(line, cylinder, result)
+     */
+    public static boolean intersectionLineCylinder(Line3d line, Cylinder cylinder, Vector3d result, GeometryScratch scratch) {
+        return scaleLine(line, intersectionLineCylinder(line, cylinder, scratch), result);
+    }
+
+    /**
+     * Stores the intersection between a line and a cylinder whose frame has already been computed into result
+     * @return true if there exists a POI; false otherwise
+     */
+    public static boolean intersectionLineCylinder(Line3d line, CylinderFrame cylinder, Vector3d result) {
+        return scaleLine(line, intersectionLineCylinder(line, cylinder), result);
+    }
+
     /**
      * Finds the intersection between a line and a sphere
      * @return the POI's distance along the line
      */
     public static double intersectionLineSphere(Line3d line, Sphere sphere) {
+        return intersectionLineSphere(line, sphere, new GeometryScratch());
+    }
+
+    /**
+     * Allocation-free version of intersectionLineSphere(line, sphere)
+     */
+    public static double intersectionLineSphere(Line3d line, Sphere sphere, GeometryScratch scratch) {
         if (line.displacement.lengthSquared() == 0) {
             return -1;
         }
-        Vector3d lineToSphere = new Vector3d(line.position).sub(sphere.position);
-        Quadratic q = new Quadratic(
+        Vector3d lineToSphere = scratch.vector1.set(line.position).sub(sphere.position);
+        Quadratic q = scratch.quadratic;
+        q.set(
                 line.displacement.lengthSquared(),
                 2 * line.displacement.dot(lineToSphere),
                 lineToSphere.lengthSquared() - sphere.getRadius()*sphere.getRadius()
@@ -266,16 +325,99 @@ public class Geometry {
         return scaleLine(line, intersectionLineSphere(line, sphere), result);
     }
 
+    /**
+     * Allocation-free version of intersectionLineSphere(line, sphere, result)
+     */
+    public static boolean intersectionLineSphere(Line3d line, Sphere sphere, Vector3d result, GeometryScratch scratch) {
+        return scaleLine(line, intersectionLineSphere(line, sphere, scratch), result);
+    }
+
+    /**
+     * Finds the intersection between a line and a torus
+     * @return the POI's distance along the line
+     */
+    public static double intersectionLineTorus(Line3d line, Torus torus) {
+        return intersectionLineTorus(line, torus, new GeometryScratch());
+    }
+
+    /**
+     * Allocation-free version of intersectionLineTorus(line, torus)
+     */
+    public static double intersectionLineTorus(Line3d line, Torus torus, GeometryScratch scratch) {
+        Vector3d d = line.displacement;
+        double dd = d.lengthSquared();
+        if (dd == 0) {
+            return -1;
+        }
+        Vector3d p = scratch.vector1.set(line.position).sub(torus.position);
+        double majorRadius = torus.getMajorRadius();
+        double minorRadius = torus.getMinorRadius();
+
+        // Skip the quartic if the line doesn't come close enough to the torus's center
+        double closest = Math.max(0, Math.min(1, -p.dot(d) / dd));
+        double outerRadius = majorRadius + minorRadius;
+        if (Vector3d.lengthSquared(p.x + closest*d.x, p.y + closest*d.y, p.z + closest*d.z) > outerRadius*outerRadius) {
+            return -1;
+        }
+
+        // Substitute p + t*d into (|x|² + R² - r²)² = 4R²(x.x² + x.y²)
+        double pd = p.dot(d);
+        double k = p.lengthSquared() + majorRadius*majorRadius - minorRadius*minorRadius;
+        double m = 4*majorRadius*majorRadius;
+        Quartic q = scratch.quartic;
+        q.set(
+                dd*dd,
+                4*dd*pd,
+                4*pd*pd + 2*dd*k - m*(d.x*d.x + d.y*d.y),
+                4*pd*k - 2*m*(p.x*d.x + p.y*d.y),
+                k*k - m*(p.x*p.x + p.y*p.y)
+        );
+
+        // Return the first root in [0, 1] (after clipping roots that are within EPSILON of 0 or 1)
+        double[] roots = scratch.roots;
+        int count = q.roots(-EPSILON, 1 + EPSILON, roots);
+        for (int i = 0; i < count; i++) {
+            double t = clipWithinEpsilon(roots[i], 0, 1);
+            if (t >= 0 && t <= 1) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stores the intersection between a line and a torus into result
+     * @return true if a POI exists; false otherwise
+     */
+    public static boolean intersectionLineTorus(Line3d line, Torus torus, Vector3d result) {
+        return scaleLine(line, intersectionLineTorus(line, torus), result);
+    }
+
+    /**
+     * Allocation-free version of intersectionLineTorus(line, torus, result)
+     */
+    public static boolean intersectionLineTorus(Line3d line, Torus torus, Vector3d result, GeometryScratch scratch) {
+        return scaleLine(line, intersectionLineTorus(line, torus, scratch), result);
+    }
+
     /**
      * Finds the intersection between a line and a circle
      * @return the POI's distance along the line
      */
     public static double intersectionLineCircle(Line2d line, Circle circle) {
+        return intersectionLineCircle(line, circle, new GeometryScratch());
+    }
+
+    /**
+     * Allocation-free version of intersectionLineCircle(line, circle)
+     */
+    public static double intersectionLineCircle(Line2d line, Circle circle, GeometryScratch scratch) {
         if (line.displacement.lengthSquared() == 0) {
             return -1;
         }
-        Vector2d lineToCircle = new Vector2d(line.position).sub(circle.position);
-        Quadratic q = new Quadratic(
+        Vector2d lineToCircle = scratch.vector2d1.set(line.position).sub(circle.position);
+        Quadratic q = scratch.quadratic;
+        q.set(
                 line.displacement.lengthSquared(),
                 2*line.displacement.dot(lineToCircle),
                 lineToCircle.lengthSquared() - circle.getRadius()*circle.getRadius()
@@ -298,6 +440,13 @@ public class Geometry {
         return scaleLine(line, intersectionLineCircle(line, circle), result);
     }
 
+    /**
+     * Allocation-free version of intersectionLineCircle(line, circle, result)
+     */
+    public static boolean intersectionLineCircle(Line2d line, Circle circle, Vector2d result, GeometryScratch scratch) {
+        return scaleLine(line, intersectionLineCircle(line, circle, scratch), result);
+    }
+
     /**
      * Finds the distance from a line segment to a point
      * @return the distance
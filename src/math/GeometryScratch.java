@@ -0,0 +1,51 @@
+package math;
+
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+import shape.CylinderFrame;
+
+/**
+ * Preallocated temporary objects used by the allocation-free overloads of the functions in Geometry,
+ * and by collision objects (which are shared between balls, so they keep no temporary state of their own).
+ * An instance must not be shared between threads
+ */
+public class GeometryScratch {
+    final Vector3d vector1;
+    final Vector3d vector2;
+    final Vector3d vector3;
+    final Vector3d tuv;
+    final Vector2d vector2d1;
+    final Quadratic quadratic;
+    final Quartic quartic;
+    final CylinderFrame cylinderFrame;
+    final double[] roots;
+
+    // Not used by Geometry; free for its callers
+    public final Vector3d point;
+    public final Vector3d normal;
+    // The part of a line within a bounding box: the range of t, and the points at either end (see CollisionRoundedBox)
+    public final Vector2d lineRange;
+    public final Vector3d lineEntry;
+    public final Vector3d lineExit;
+    // The closest intersection found by a collision object, and the normal there
+    public final Vector3d hitPoint;
+    public final Vector3d hitNormal;
+    public GeometryScratch() {
+        vector1 = new Vector3d();
+        vector2 = new Vector3d();
+        vector3 = new Vector3d();
+        tuv = new Vector3d();
+        vector2d1 = new Vector2d();
+        quadratic = new Quadratic();
+        quartic = new Quartic();
+        cylinderFrame = new CylinderFrame();
+        roots = new double[4];
+        point = new Vector3d();
+        normal = new Vector3d();
+        lineRange = new Vector2d();
+        lineEntry = new Vector3d();
+        lineExit = new Vector3d();
+        hitPoint = new Vector3d();
+        hitNormal = new Vector3d();
+    }
+}
@@ -37,6 +37,19 @@ public class MathUtil {
         }
         return a;
     }
+    /**
+     * @return Returns b or c if a is within EPSILON of them (checking b first); returns a otherwise.
+     * Avoids allocating the array that clipWithinEpsilon(a, withinValues...) would need
+     */
+    public static double clipWithinEpsilon(double a, double b, double c) {
+        if (withinEpsilon(a, b)) {
+            return b;
+        }
+        if (withinEpsilon(a, c)) {
+            return c;
+        }
+        return a;
+    }
     /**
      * @return Returns the first value in withinValues that is within EPISLON of a; returns a if no values are within EPISLON
      */
@@ -96,6 +109,15 @@ public class MathUtil {
         return minNonNegative(clipWithinEpsilon(a, 0, 1), clipWithinEpsilon(b, 0, 1));
     }
 
+    /**
+     * Linearly interpolates between two angles (in radians) along the shorter way around the circle
+     * @param t the interpolation factor (0 gives a, 1 gives b)
+     */
+    public static double lerpAngle(double a, double b, double t) {
+        double difference = java.lang.Math.IEEEremainder(b - a, 2*java.lang.Math.PI);
+        return a + difference*t;
+    }
+
     /**
      * Clips a to min or max if it is smaller than min or greater than max, respectively
      * @return the clipped value
@@ -8,9 +8,7 @@ public class Quadratic {
     private double b;
     private double c;
     public Quadratic(double a, double b, double c) {
-        this.a = a;
-        this.b = b;
-        this.c = c;
+        set(a, b, c);
     }
     public Quadratic() {
         this(0, 0, 0);
@@ -18,6 +16,11 @@ public class Quadratic {
     public Quadratic(Quadratic other) {
         this(other.a, other.b, other.c);
     }
+    public void set(double a, double b, double c) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+    }
     public double discriminant() {
         return b*b - 4*a*c;
     }
@@ -0,0 +1,146 @@
+package math;
+
+/**
+ * Represents a polynomial of the form ax⁴+bx³+cx²+dx+e.
+ *
+ * Roots are found by splitting the search interval at the roots of the derivative (found the same way, recursively),
+ * so that the polynomial is monotonic on every piece, then using Newton's method (falling back to bisection)
+ * on the pieces where it changes sign. Unlike the closed-form solution, this does not lose precision
+ * when roots are close together or the coefficients are very different in size
+ */
+public class Quartic {
+    private static final int MAX_ITERATIONS = 64;
+
+    // coefficients[n] holds the coefficients of the (4-n)th derivative (degree n), highest power first
+    private final double[][] coefficients;
+    // criticalPoints[n] holds the roots of the derivative of the degree-n polynomial
+    private final double[][] criticalPoints;
+
+    public Quartic(double a, double b, double c, double d, double e) {
+        coefficients = new double[5][];
+        criticalPoints = new double[5][];
+        for (int n = 1; n <= 4; n++) {
+            coefficients[n] = new double[n + 1];
+            criticalPoints[n] = new double[n - 1];
+        }
+        set(a, b, c, d, e);
+    }
+    public Quartic() {
+        this(0, 0, 0, 0, 0);
+    }
+    public void set(double a, double b, double c, double d, double e) {
+        double[] quartic = coefficients[4];
+        quartic[0] = a;
+        quartic[1] = b;
+        quartic[2] = c;
+        quartic[3] = d;
+        quartic[4] = e;
+        for (int n = 3; n >= 1; n--) {
+            for (int i = 0; i <= n; i++) {
+                coefficients[n][i] = coefficients[n + 1][i] * (n + 1 - i);
+            }
+        }
+    }
+
+    /**
+     * @return the value of the polynomial at x
+     */
+    public double evaluate(double x) {
+        return evaluate(4, x);
+    }
+    private double evaluate(int degree, double x) {
+        double[] p = coefficients[degree];
+        double result = p[0];
+        for (int i = 1; i <= degree; i++) {
+            result = result*x + p[i];
+        }
+        return result;
+    }
+
+    /**
+     * Finds the real roots of the polynomial within [min, max]
+     * @param roots the array to store the roots in (in increasing order). Must have room for at least 4 values
+     * @return the number of roots found
+     */
+    public int roots(double min, double max, double[] roots) {
+        return roots(4, min, max, roots);
+    }
+
+    private int roots(int degree, double min, double max, double[] roots) {
+        double[] p = coefficients[degree];
+        if (degree == 1) {
+            if (p[0] == 0) {
+                return 0;
+            }
+            double x = -p[1] / p[0];
+            if (x < min || x > max) {
+                return 0;
+            }
+            roots[0] = x;
+            return 1;
+        }
+
+        // The polynomial is monotonic between consecutive critical points
+        double[] splits = criticalPoints[degree];
+        int splitCount = roots(degree - 1, min, max, splits);
+
+        int count = 0;
+        double lo = min;
+        double fLo = evaluate(degree, lo);
+        for (int i = 0; i <= splitCount; i++) {
+            double hi = i < splitCount ? splits[i] : max;
+            double fHi = evaluate(degree, hi);
+            if (fLo == 0) {
+                if (count == 0 || roots[count - 1] != lo) {
+                    roots[count++] = lo;
+                }
+            } else if ((fLo < 0) != (fHi < 0) && fHi != 0) {
+                roots[count++] = monotonicRoot(degree, lo, hi, fLo);
+            }
+            lo = hi;
+            fLo = fHi;
+        }
+        if (fLo == 0 && (count == 0 || roots[count - 1] != lo)) {
+            roots[count++] = lo;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the root of the degree-n polynomial on an interval where it is monotonic and changes sign
+     * @param fLo the value of the polynomial at lo
+     */
+    private double monotonicRoot(int degree, double lo, double hi, double fLo) {
+        double x = 0.5*(lo + hi);
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double f = evaluate(degree, x);
+            if (f == 0) {
+                return x;
+            }
+            // Shrink the interval so that it always contains the root
+            if ((f < 0) == (fLo < 0)) {
+                lo = x;
+            } else {
+                hi = x;
+            }
+
+            // Take a Newton step if it stays inside the interval; bisect otherwise
+            double next = x - f / derivative(degree, x);
+            if (!(next > lo && next < hi)) {
+                next = 0.5*(lo + hi);
+            }
+            if (next == x || hi - lo <= Math.ulp(x)) {
+                return next;
+            }
+            x = next;
+        }
+        return x;
+    }
+
+    /**
+     * @return the value of the derivative of the degree-n polynomial at x
+     */
+    private double derivative(int degree, double x) {
+        return evaluate(degree - 1, x);
+    }
+}
@@ -59,6 +59,26 @@ public class MeshBuilder {
         colors.addToList(this.colors);
     }
 
+    /**
+     * Adds a copy of another builder's triangles and quadrilaterals to the mesh
+     * @param offset the amount to move the copied vertices by
+     */
+    public void addMesh(MeshBuilder mesh, Vector3f offset) {
+        int start = vertices.size();
+        for (Vector3f vertex : mesh.vertices) {
+            vertices.add(new Vector3f(vertex).add(offset));
+        }
+        for (Vector3f normal : mesh.normals) {
+            normals.add(new Vector3f(normal));
+        }
+        for (Vector3f color : mesh.colors) {
+            colors.add(new Vector3f(color));
+        }
+        for (int index : mesh.indices) {
+            indices.add(start + index);
+        }
+    }
+
     public void addAxisAlignedBox(Line3f box, Vector3f color) {
         Quad colors = new Quad(color);
         addQuad(
@@ -127,7 +147,7 @@ public class MeshBuilder {
      * Creates a mesh from the added triangles and quadrilaterals
      * @return the mesh
      */
-    GameObjectMesh createMesh() {
+    public GameObjectMesh createMesh() {
         int size = this.vertices.size();
         float[] vertices = new float[3*size];
         float[] normals = new float[3*size];
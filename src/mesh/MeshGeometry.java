@@ -326,12 +326,26 @@ public class MeshGeometry {
      * @return the mesh
      */
     public static GameObjectMesh axisAlignedBoxMesh(Line3f box, Vector3f color) {
+        return axisAlignedBox(box, color).createMesh();
+    }
+
+    /**
+     * Same as axisAlignedBoxMesh(), but without creating the mesh (so that it can be added to other meshes)
+     */
+    public static MeshBuilder axisAlignedBox(Line3f box, Vector3f color) {
         MeshBuilder builder = new MeshBuilder();
         builder.addAxisAlignedBox(box, color);
-        return builder.createMesh();
+        return builder;
     }
 
     public static GameObjectMesh spikeTileMesh(Line3f box, Vector3f color, float spikeHeight, int n) {
+        return spikeTile(box, color, spikeHeight, n).createMesh();
+    }
+
+    /**
+     * Same as spikeTileMesh(), but without creating the mesh (so that it can be added to other meshes)
+     */
+    public static MeshBuilder spikeTile(Line3f box, Vector3f color, float spikeHeight, int n) {
         MeshBuilder builder = new MeshBuilder();
         builder.addAxisAlignedBox(box, color);
         Vector3f top = new Vector3f();
@@ -359,7 +373,7 @@ public class MeshGeometry {
                 builder.addTriangle(triangle, new Triangle(triangleNormal(triangle)), triangleColor);
             }
         }
-        return builder.createMesh();
+        return builder;
     }
 
     /**
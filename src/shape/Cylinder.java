@@ -2,8 +2,6 @@ package shape;
 
 import org.joml.Vector3d;
 
-import static math.Geometry.project;
-
 /**
  * Represents a cylinder defined by a radius, axis, and position
  */
@@ -44,11 +42,19 @@ public class Cylinder {
      * @return the vector
      */
     public Vector3d normal(Vector3d point) {
-        Vector3d u = new Vector3d(point).sub(position);
-        Vector3d projection = new Vector3d();
-        project(u, axis, projection);
-        projection.add(position);
-        return u.set(point).sub(projection);
+        return normal(point, new Vector3d());
+    }
+
+    /**
+     * Stores the normal vector of a point on the cylinder in result
+     * @param point the point on the cylinder. Must not be the same variable as result
+     * @return result
+     */
+    public Vector3d normal(Vector3d point, Vector3d result) {
+        // Project (point - position) onto the axis, then find the vector from the projection to the point
+        double k = (point.x-position.x)*axis.x + (point.y-position.y)*axis.y + (point.z-position.z)*axis.z;
+        result.set(axis).mul(k / axis.lengthSquared()).add(position);
+        return point.sub(result, result);
     }
     public String toString() {
         return String.format("[Cylinder pos=%s axis=%s r=%s]", position, axis, radius);
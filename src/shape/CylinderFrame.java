@@ -0,0 +1,76 @@
+package shape;
+
+import org.joml.Vector3d;
+
+/**
+ * A cylinder, along with an orthonormal frame (the unit axis, and two unit vectors perpendicular to it and each other)
+ * computed from it ahead of time. Lines can be intersected with the cylinder by projecting them onto the frame,
+ * which works for any axis and needs no rotation matrices
+ */
+public class CylinderFrame {
+    public final Vector3d position;
+    public final Vector3d axis;
+    public final Vector3d u;
+    public final Vector3d v;
+    private double length;
+    private double radius;
+    public CylinderFrame() {
+        position = new Vector3d();
+        axis = new Vector3d(0, 0, 1);
+        u = new Vector3d(1, 0, 0);
+        v = new Vector3d(0, 1, 0);
+        length = 0;
+        radius = 0;
+    }
+    public CylinderFrame(Cylinder cylinder) {
+        this();
+        set(cylinder);
+    }
+
+    /**
+     * Computes the frame of a cylinder
+     * @param cylinder the cylinder; its axis must not be zero
+     */
+    public void set(Cylinder cylinder) {
+        position.set(cylinder.position);
+        radius = cylinder.getRadius();
+        length = cylinder.axis.length();
+        axis.set(cylinder.axis).div(length);
+
+        // Cross the axis with whichever coordinate axis is the least parallel to it
+        double x = Math.abs(axis.x), y = Math.abs(axis.y), z = Math.abs(axis.z);
+        if (x <= y && x <= z) {
+            u.set(0, axis.z, -axis.y);
+        } else if (y <= z) {
+            u.set(-axis.z, 0, axis.x);
+        } else {
+            u.set(axis.y, -axis.x, 0);
+        }
+        u.normalize();
+        axis.cross(u, v);
+    }
+
+    /**
+     * @return the length of the cylinder's axis
+     */
+    public double getLength() {
+        return length;
+    }
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Stores the normal vector of a point on the cylinder in result
+     * @param point the point on the cylinder
+     * @return result
+     */
+    public Vector3d normal(Vector3d point, Vector3d result) {
+        double x = point.x - position.x, y = point.y - position.y, z = point.z - position.z;
+        double k = x*axis.x + (y*axis.y + z*axis.z);
+        return result.set(x - k*axis.x, y - k*axis.y, z - k*axis.z);
+    }
+    public String toString() {
+        return String.format("[CylinderFrame pos=%s axis=%s length=%s r=%s]", position, axis, length, radius);
+    }
+}
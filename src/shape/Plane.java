@@ -35,7 +35,15 @@ public class Plane {
      * @return the normal of this plane
      */
     public Vector3d normal() {
-        return new Vector3d(displacement1).cross(displacement2);
+        return normal(new Vector3d());
+    }
+
+    /**
+     * Stores the normal of this plane in result
+     * @return result
+     */
+    public Vector3d normal(Vector3d result) {
+        return displacement1.cross(displacement2, result);
     }
     public String toString() {
         return String.format("[Plane pos=%s d1=%s d2=%s]", position, displacement1, displacement2);
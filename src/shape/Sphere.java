@@ -39,7 +39,16 @@ public class Sphere {
      * @return the vector
      */
     public Vector3d normal(Vector3d point) {
-        return new Vector3d(point).sub(position);
+        return normal(point, new Vector3d());
+    }
+
+    /**
+     * Stores the normal vector of a point on the sphere in result
+     * @param point the point on the sphere
+     * @return result
+     */
+    public Vector3d normal(Vector3d point, Vector3d result) {
+        return point.sub(position, result);
     }
     public String toString() {
         return String.format("[Sphere pos=%s r=%s]", position, radius);
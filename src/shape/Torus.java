@@ -0,0 +1,69 @@
+package shape;
+
+import org.joml.Vector3d;
+
+/**
+ * Represents a torus whose axis is parallel to the z-axis, defined by a position (its center),
+ * a major radius (from the center to the middle of the tube), and a minor radius (the radius of the tube)
+ */
+public class Torus {
+    public final Vector3d position;
+    private double majorRadius;
+    private double minorRadius;
+    public Torus() {
+        position = new Vector3d();
+        majorRadius = 0;
+        minorRadius = 0;
+    }
+    public Torus(Vector3d position, double majorRadius, double minorRadius) {
+        this();
+        set(position, majorRadius, minorRadius);
+    }
+    public Torus(Torus torus) {
+        this();
+        set(torus);
+    }
+    public void set(Vector3d position, double majorRadius, double minorRadius) {
+        this.position.set(position);
+        this.majorRadius = majorRadius;
+        this.minorRadius = minorRadius;
+    }
+    public void set(Torus torus) {
+        set(torus.position, torus.majorRadius, torus.minorRadius);
+    }
+    public double getMajorRadius() {
+        return majorRadius;
+    }
+    public double getMinorRadius() {
+        return minorRadius;
+    }
+
+    /**
+     * Get the normal vector of a point on the torus
+     * @param point the point on the torus
+     * @return the vector
+     */
+    public Vector3d normal(Vector3d point) {
+        return normal(point, new Vector3d());
+    }
+
+    /**
+     * Stores the normal vector of a point on the torus in result
+     * (the vector from the closest point on the middle of the tube to the point)
+     * @param point the point on the torus
+     * @return result
+     */
+    public Vector3d normal(Vector3d point, Vector3d result) {
+        double x = point.x - position.x;
+        double y = point.y - position.y;
+        double distanceFromAxis = Math.sqrt(x*x + y*y);
+        if (distanceFromAxis == 0) {
+            return result.set(0, 0, point.z - position.z);
+        }
+        double k = majorRadius / distanceFromAxis;
+        return result.set(x - x*k, y - y*k, point.z - position.z);
+    }
+    public String toString() {
+        return String.format("[Torus pos=%s R=%s r=%s]", position, majorRadius, minorRadius);
+    }
+}
@@ -0,0 +1,55 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands values from one thread to another without locking.
+ *
+ * The writer fills in the back buffer and publishes it; the reader acquires the most recently published buffer.
+ * The buffers are swapped rather than copied, and the writer never waits for the reader (or vice versa).
+ * Only one thread may write, and only one thread may read
+ * @param <T> the type of the buffers
+ */
+public class TripleBuffer<T> {
+    // Set on the shared index when it holds a buffer the reader hasn't acquired yet
+    private static final int NEW = 4;
+
+    private final T[] buffers;
+    private final AtomicInteger shared;
+    private int back;
+    private int front;
+
+    @SuppressWarnings("unchecked")
+    public TripleBuffer(Supplier<T> factory) {
+        buffers = (T[])new Object[] {factory.get(), factory.get(), factory.get()};
+        back = 0;
+        shared = new AtomicInteger(1);
+        front = 2;
+    }
+
+    /**
+     * @return the buffer for the writer to fill in. Only used by the writer
+     */
+    public T getBack() {
+        return buffers[back];
+    }
+
+    /**
+     * Makes the back buffer available to the reader, and gives the writer a new back buffer. Only used by the writer
+     */
+    public void publish() {
+        back = shared.getAndSet(back | NEW) & ~NEW;
+    }
+
+    /**
+     * @return the most recently published buffer. Only used by the reader;
+     * the buffer stays valid until the next call to acquire()
+     */
+    public T acquire() {
+        if ((shared.get() & NEW) != 0) {
+            front = shared.getAndSet(front) & ~NEW;
+        }
+        return buffers[front];
+    }
+}